@@ -0,0 +1,179 @@
+package dynamilize.benchmark;
+
+import dynamilize.DynamicMaker;
+import dynamilize.DynamicObject;
+import dynamilize.FunctionEntry;
+import dynamilize.FunctionType;
+import dynamilize.IFunctionEntry;
+import dynamilize.IVariable;
+import dynamilize.IllegalHandleException;
+import dynamilize.JavaHandleHelper;
+import dynamilize.classmaker.ASMGenerator;
+import dynamilize.classmaker.BaseClassLoader;
+import org.objectweb.asm.Opcodes;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+
+/**
+ * The factories shared by the benchmarks. The Java members are referenced through method handles, so the benchmarks
+ * measure the dispatch of the library instead of the reflection.
+ *
+ * @author EBwilson
+ */
+public final class BenchmarkSupport {
+	private BenchmarkSupport() {}
+
+	/** Create a factory generating the classes with the default generator, in the given dispatch mode. */
+	public static DynamicMaker maker(DynamicMaker.DispatchMode mode) {
+		ASMGenerator generator = new ASMGenerator(new BaseClassLoader(BenchmarkSupport.class.getClassLoader()), Opcodes.V17);
+		DynamicMaker res = new DynamicMaker(new HandleHelper()) {
+			@Override
+			protected <T> Class<? extends T> generateClass(Class<T> baseClass, Class<?>[] interfaces, Class<?>[] aspects) {
+				return makeClassInfo(baseClass, interfaces, aspects).generate(generator);
+			}
+		};
+		res.setDispatchMode(mode);
+
+		return res;
+	}
+
+	private static class HandleHelper implements JavaHandleHelper {
+		@Override
+		public IVariable getJavaVariableReference(Field field) {
+			try {
+				makeAccess(field);
+				return new FieldVariable(field.getName(), MethodHandles.lookup().unreflectGetter(field), MethodHandles.lookup().unreflectSetter(field));
+			} catch (IllegalAccessException e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		@Override
+		public IFunctionEntry getJavaMethodReference(Method method) {
+			try {
+				makeAccess(method);
+				MethodHandle handle = MethodHandles.lookup().unreflect(method).asFixedArity().asSpreader(Object[].class, method.getParameterCount());
+				boolean isStatic = Modifier.isStatic(method.getModifiers());
+
+				return new FunctionEntry<>(method.getName(), (self, args) -> {
+					try {
+						return isStatic ? handle.invoke(args.args()) : handle.invoke(self.objSelf(), args.args());
+					} catch (Throwable e) {
+						throw new IllegalHandleException(e);
+					}
+				}, FunctionType.from(method));
+			} catch (IllegalAccessException e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+	}
+
+	private record FieldVariable(String name, MethodHandle getter, MethodHandle setter) implements IVariable {
+		@SuppressWarnings("unchecked")
+		@Override
+		public <T> T get(DynamicObject<?> obj) {
+			try {
+				return (T) getter.invoke(obj.objSelf());
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		@Override
+		public void set(DynamicObject<?> obj, Object value) {
+			try {
+				setter.invoke(obj.objSelf(), value);
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		private Number number(DynamicObject<?> obj) {
+			return get(obj);
+		}
+
+		@Override
+		public boolean get(DynamicObject<?> obj, boolean def) {
+			return this.<Boolean>get(obj);
+		}
+
+		@Override
+		public byte get(DynamicObject<?> obj, byte def) {
+			return number(obj).byteValue();
+		}
+
+		@Override
+		public short get(DynamicObject<?> obj, short def) {
+			return number(obj).shortValue();
+		}
+
+		@Override
+		public int get(DynamicObject<?> obj, int def) {
+			return number(obj).intValue();
+		}
+
+		@Override
+		public long get(DynamicObject<?> obj, long def) {
+			return number(obj).longValue();
+		}
+
+		@Override
+		public float get(DynamicObject<?> obj, float def) {
+			return number(obj).floatValue();
+		}
+
+		@Override
+		public double get(DynamicObject<?> obj, double def) {
+			return number(obj).doubleValue();
+		}
+
+		@Override
+		public char get(DynamicObject<?> obj, char def) {
+			return this.<Character>get(obj);
+		}
+
+		@Override
+		public void set(DynamicObject<?> obj, boolean value) {
+			set(obj, (Object) value);
+		}
+
+		@Override
+		public void set(DynamicObject<?> obj, byte value) {
+			set(obj, (Object) value);
+		}
+
+		@Override
+		public void set(DynamicObject<?> obj, short value) {
+			set(obj, (Object) value);
+		}
+
+		@Override
+		public void set(DynamicObject<?> obj, int value) {
+			set(obj, (Object) value);
+		}
+
+		@Override
+		public void set(DynamicObject<?> obj, long value) {
+			set(obj, (Object) value);
+		}
+
+		@Override
+		public void set(DynamicObject<?> obj, float value) {
+			set(obj, (Object) value);
+		}
+
+		@Override
+		public void set(DynamicObject<?> obj, double value) {
+			set(obj, (Object) value);
+		}
+
+		@Override
+		public void set(DynamicObject<?> obj, char value) {
+			set(obj, (Object) value);
+		}
+	}
+}
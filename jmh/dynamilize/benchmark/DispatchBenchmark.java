@@ -0,0 +1,88 @@
+package dynamilize.benchmark;
+
+import dynamilize.DynamicClass;
+import dynamilize.DynamicMaker;
+import dynamilize.DynamicObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The calls of the functions of a dynamic instance, through {@link DynamicObject#invokeFunc(String, Object...)} with the
+ * exactly and the fuzzily matched argument types, through the generated methods and through a wrapped object, compared
+ * with the plain Java virtual calls.
+ *
+ * @author EBwilson
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DispatchBenchmark {
+	@Param({"INLINE_CACHE", "INVOKE_DYNAMIC"})
+	public DynamicMaker.DispatchMode mode;
+
+	private DynamicObject<Entity> dynamic;
+	private DynamicObject<Entity> wrapped;
+	private Entity generated;
+	private Entity plain;
+
+	private float delta = 0.5f;
+	private String prefix = "name: ";
+
+	@Setup
+	public void setup() {
+		DynamicClass dyClass = DynamicClass.get("DispatchBenchmark");
+		dyClass.<Entity, Float>setFunction("update", (self, args) -> args.<Float>get(0) * 3, float.class);
+		// declared with a super type of the argument, so the call is resolved by the fuzzy match
+		dyClass.<Entity, String>setFunction("label", (self, args) -> args.get(0) + "dynamic", Object.class);
+
+		DynamicMaker maker = BenchmarkSupport.maker(mode);
+		dynamic = maker.newInstance(Entity.class, dyClass);
+		generated = dynamic.objSelf();
+		wrapped = maker.wrapInstance(new Entity());
+		plain = new Entity.Overridden();
+	}
+
+	@Benchmark
+	public float invokeFuncExact() {
+		return dynamic.<Float>invokeFunc("update", delta);
+	}
+
+	@Benchmark
+	public String invokeFuncFuzzy() {
+		return dynamic.invokeFunc("label", prefix);
+	}
+
+	@Benchmark
+	public float generatedMethod() {
+		return generated.update(delta);
+	}
+
+	@Benchmark
+	public String wrappedInvokeFunc() {
+		return wrapped.invokeFunc("describe", prefix);
+	}
+
+	@Benchmark
+	public float javaVirtual() {
+		return plain.update(delta);
+	}
+
+	@Benchmark
+	public String javaVirtualObject() {
+		return plain.describe(prefix);
+	}
+}
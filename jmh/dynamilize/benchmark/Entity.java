@@ -0,0 +1,27 @@
+package dynamilize.benchmark;
+
+/**
+ * The plain Java type delegated by the benchmarks, its methods are also called directly as the baselines.
+ *
+ * @author EBwilson
+ */
+public class Entity {
+	public int hp = 100;
+	public String tag = "entity";
+
+	public float update(float delta) {
+		return delta * 2;
+	}
+
+	public String describe(String prefix) {
+		return prefix + tag;
+	}
+
+	/** The Java equivalent of a dynamic function calling the super implementation. */
+	public static class Overridden extends Entity {
+		@Override
+		public float update(float delta) {
+			return super.update(delta) + 1;
+		}
+	}
+}
@@ -0,0 +1,68 @@
+package dynamilize.benchmark;
+
+import dynamilize.DynamicClass;
+import dynamilize.DynamicMaker;
+import dynamilize.DynamicObject;
+import dynamilize.InstanceFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The creation of the dynamic instances of a generated type, by {@link DynamicMaker#newInstance(Class, DynamicClass, Object...)}
+ * and by an {@link InstanceFactory}, and the wrapping of a Java object, compared with the Java {@code new}.
+ *
+ * @author EBwilson
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class InstantiationBenchmark {
+	private DynamicMaker maker;
+	private DynamicClass dyClass;
+	private InstanceFactory<Entity> factory;
+	private Entity target;
+
+	@Setup
+	public void setup() {
+		dyClass = DynamicClass.get("InstantiationBenchmark");
+		dyClass.setVariable("name", "dynamic");
+		dyClass.<Entity, Float>setFunction("update", (self, args) -> args.<Float>get(0) * 3, float.class);
+
+		maker = BenchmarkSupport.maker(DynamicMaker.DispatchMode.INLINE_CACHE);
+		factory = maker.getFactory(Entity.class, dyClass);
+		target = new Entity();
+	}
+
+	@Benchmark
+	public DynamicObject<Entity> newInstance() {
+		return maker.newInstance(Entity.class, dyClass);
+	}
+
+	@Benchmark
+	public DynamicObject<Entity> factoryNewInstance() {
+		return factory.newInstance();
+	}
+
+	@Benchmark
+	public DynamicObject<Entity> wrapInstance() {
+		return maker.wrapInstance(target);
+	}
+
+	@Benchmark
+	public Entity javaNew() {
+		return new Entity();
+	}
+}
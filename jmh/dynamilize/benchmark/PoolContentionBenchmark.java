@@ -0,0 +1,157 @@
+package dynamilize.benchmark;
+
+import dynamilize.ArgumentList;
+import dynamilize.DataPool;
+import dynamilize.DynamicClass;
+import dynamilize.DynamicMaker;
+import dynamilize.DynamicObject;
+import dynamilize.FunctionType;
+import dynamilize.ProxyMaker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The throughput of the pooled allocators shared by all threads, driven by 1, 4 and all available threads, so the
+ * scaling can be read from the results of the subclasses. {@link Mixed} runs all of the allocators at the same time.
+ * <ul>
+ *   <li>{@link ArgumentList}: obtaining and recycling the argument lists and the argument arrays</li>
+ *   <li>{@link FunctionType#inst(Class[])}: looking up the interned function types</li>
+ *   <li>{@link DataPool.ReadOnlyPool}: obtaining the cached super pointers by {@link DataPool#getSuper(DynamicObject, DataPool.ReadOnlyPool)}</li>
+ *   <li>{@link ProxyMaker.FunctionMarker}: obtaining and recycling the markers of the proxied functions, by calling a proxy</li>
+ * </ul>
+ * The allocation rate is reported by the GC profiler, run the {@code jmhContention} task or pass {@code -prof gc} to JMH.
+ *
+ * @author EBwilson
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public abstract class PoolContentionBenchmark {
+	private static final Class<?>[][] SIGNATURES = {
+			{int.class, float.class},
+			{String.class},
+			{Object.class, Object.class, Object.class},
+			{long.class, double.class, boolean.class, char.class}
+	};
+
+	@Benchmark
+	public Object argumentList(Local local) {
+		ArgumentList args = ArgumentList.as(local.args);
+		Object res = args.get(0);
+		args.recycle();
+
+		Object[] list = ArgumentList.getList(local.args.length);
+		ArgumentList.recycleList(list);
+
+		return res;
+	}
+
+	@Benchmark
+	public FunctionType functionType(Local local) {
+		return FunctionType.inst(SIGNATURES[local.next() & 3]);
+	}
+
+	@Benchmark
+	public DataPool.ReadOnlyPool superPool(Shared shared) {
+		return shared.pool.getSuper(shared.owner, shared.owner.baseSuperPointer());
+	}
+
+	@Benchmark
+	public float functionMarker(Shared shared, Local local) {
+		return shared.proxy.update(local.delta);
+	}
+
+	@Threads(1)
+	public static class Single extends PoolContentionBenchmark {}
+
+	@Threads(4)
+	public static class Quad extends PoolContentionBenchmark {}
+
+	@Threads(Threads.MAX)
+	public static class Max extends PoolContentionBenchmark {}
+
+	/** All of the allocators are used by the threads of a group at the same time, the interference between them is measured. */
+	@BenchmarkMode(Mode.Throughput)
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	@Warmup(iterations = 3, time = 1)
+	@Measurement(iterations = 5, time = 1)
+	@Fork(1)
+	public static class Mixed {
+		private final PoolContentionBenchmark delegate = new Single();
+
+		@Benchmark
+		@Group("mixed")
+		@GroupThreads(2)
+		public Object argumentList(Local local) {
+			return delegate.argumentList(local);
+		}
+
+		@Benchmark
+		@Group("mixed")
+		@GroupThreads(2)
+		public FunctionType functionType(Local local) {
+			return delegate.functionType(local);
+		}
+
+		@Benchmark
+		@Group("mixed")
+		@GroupThreads(2)
+		public DataPool.ReadOnlyPool superPool(Shared shared) {
+			return delegate.superPool(shared);
+		}
+
+		@Benchmark
+		@Group("mixed")
+		@GroupThreads(2)
+		public float functionMarker(Shared shared, Local local) {
+			return delegate.functionMarker(shared, local);
+		}
+	}
+
+	/** The dynamic objects shared by all threads. */
+	@State(Scope.Benchmark)
+	public static class Shared {
+		DynamicObject<Entity> owner;
+		DataPool pool;
+		Entity proxy;
+
+		@Setup
+		public void setup() {
+			DynamicMaker maker = BenchmarkSupport.maker(DynamicMaker.DispatchMode.INLINE_CACHE);
+			DynamicClass dyClass = DynamicClass.get("PoolContentionBenchmark");
+			dyClass.<Entity, Float>setFunction("update", (self, args) -> args.<Float>get(0) * 3, float.class);
+
+			owner = maker.newInstance(Entity.class, dyClass);
+			pool = dyClass.genPool(null);
+			proxy = ProxyMaker.getDefault(maker, (self, func, superFunction, args) -> superFunction.invoke(self, args)).newProxyInstance(Entity.class).objSelf();
+		}
+	}
+
+	/** The arguments used by a thread. */
+	@State(Scope.Thread)
+	public static class Local {
+		final Object[] args = {1, "arg", 2.5f};
+		float delta = 0.5f;
+
+		private int cursor;
+
+		int next() {
+			return cursor++;
+		}
+	}
+}
@@ -0,0 +1,67 @@
+package dynamilize.benchmark;
+
+import dynamilize.DynamicMaker;
+import dynamilize.ProxyMaker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The calls of a proxy instance created by {@link ProxyMaker}, whose handler passes the calls to the proxied methods,
+ * compared with the plain Java virtual calls.
+ *
+ * @author EBwilson
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProxyBenchmark {
+	@Param({"INLINE_CACHE", "INVOKE_DYNAMIC"})
+	public DynamicMaker.DispatchMode mode;
+
+	private Entity proxy;
+	private Entity plain;
+
+	private float delta = 0.5f;
+	private String prefix = "name: ";
+
+	@Setup
+	public void setup() {
+		ProxyMaker proxyMaker = ProxyMaker.getDefault(BenchmarkSupport.maker(mode), (self, func, superFunction, args) -> superFunction.invoke(self, args));
+		proxy = proxyMaker.newProxyInstance(Entity.class).objSelf();
+		plain = new Entity.Overridden();
+	}
+
+	@Benchmark
+	public float proxyPrimitive() {
+		return proxy.update(delta);
+	}
+
+	@Benchmark
+	public String proxyObject() {
+		return proxy.describe(prefix);
+	}
+
+	@Benchmark
+	public float javaVirtualPrimitive() {
+		return plain.update(delta);
+	}
+
+	@Benchmark
+	public String javaVirtualObject() {
+		return plain.describe(prefix);
+	}
+}
@@ -0,0 +1,78 @@
+package dynamilize.benchmark;
+
+import dynamilize.DynamicClass;
+import dynamilize.DynamicMaker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The functions calling their super implementations through the {@linkplain dynamilize.DataPool.ReadOnlyPool super pointer},
+ * either the method of the base class or the function of the super dynamic class, compared with the Java {@code super} call.
+ *
+ * @author EBwilson
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SuperCallBenchmark {
+	@Param({"INLINE_CACHE", "INVOKE_DYNAMIC"})
+	public DynamicMaker.DispatchMode mode;
+
+	private DynamicClass parent;
+	private DynamicClass child;
+
+	private Entity toBase;
+	private Entity toDynamic;
+	private Entity plain;
+
+	private float delta = 0.5f;
+
+	@Setup
+	public void setup() {
+		parent = DynamicClass.declare("SuperCallBenchmark", null);
+		parent.<Entity, Float>setFunction("update", (self, sup, args) -> sup.<Float>invokeFunc("update", args) + 1, float.class);
+		child = DynamicClass.declare("SuperCallBenchmarkChild", parent);
+		child.<Entity, Float>setFunction("update", (self, sup, args) -> sup.<Float>invokeFunc("update", args) + 1, float.class);
+
+		DynamicMaker maker = BenchmarkSupport.maker(mode);
+		toBase = maker.newInstance(Entity.class, parent).objSelf();
+		toDynamic = maker.newInstance(Entity.class, child).objSelf();
+		plain = new Entity.Overridden();
+	}
+
+	@TearDown
+	public void tearDown() {
+		child.delete();
+		parent.delete();
+	}
+
+	@Benchmark
+	public float superToBase() {
+		return toBase.update(delta);
+	}
+
+	@Benchmark
+	public float superToDynamic() {
+		return toDynamic.update(delta);
+	}
+
+	@Benchmark
+	public float javaSuper() {
+		return plain.update(delta);
+	}
+}
@@ -0,0 +1,97 @@
+package dynamilize.benchmark;
+
+import dynamilize.DynamicClass;
+import dynamilize.DynamicMaker;
+import dynamilize.DynamicObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The reads and writes of the object and the primitive variables of a dynamic instance, in each variable layout,
+ * compared with the plain Java field accesses.
+ *
+ * @author EBwilson
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class VariableBenchmark {
+	@Param({"HASH_MAP", "FIELDS", "SHAPE"})
+	public DynamicMaker.VariableLayout layout;
+
+	private DynamicObject<Entity> dynamic;
+	private Entity plain;
+
+	private int counter;
+
+	@Setup
+	public void setup() {
+		DynamicClass dyClass = DynamicClass.get("VariableBenchmark");
+		dyClass.setVariable("name", "dynamic");
+		dyClass.setVariable("count", int.class, () -> 0);
+
+		DynamicMaker maker = BenchmarkSupport.maker(DynamicMaker.DispatchMode.INLINE_CACHE);
+		maker.setVariableLayout(layout);
+		dynamic = maker.newInstance(Entity.class, dyClass);
+		plain = new Entity();
+	}
+
+	@Benchmark
+	public String getObject() {
+		return dynamic.getVar("name");
+	}
+
+	@Benchmark
+	public void setObject() {
+		dynamic.setVar("name", "dynamic");
+	}
+
+	@Benchmark
+	public int getPrimitive() {
+		return dynamic.getVar("count", 0);
+	}
+
+	@Benchmark
+	public void setPrimitive() {
+		dynamic.setVar("count", counter++);
+	}
+
+	@Benchmark
+	public int getJavaField() {
+		return dynamic.getVar("hp", 0);
+	}
+
+	@Benchmark
+	public String javaGetObject() {
+		return plain.tag;
+	}
+
+	@Benchmark
+	public void javaSetObject() {
+		plain.tag = "entity";
+	}
+
+	@Benchmark
+	public int javaGetPrimitive() {
+		return plain.hp;
+	}
+
+	@Benchmark
+	public void javaSetPrimitive() {
+		plain.hp = counter++;
+	}
+}
@@ -0,0 +1,141 @@
+package dynamilize;
+
+import dynamilize.classmaker.ASMGenerator;
+import dynamilize.classmaker.BaseClassLoader;
+import dynamilize.classmaker.ClassInfo;
+import dynamilize.runtimeannos.Pregenerate;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.SimpleRemapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * The build time generator of dynamic types, it scans the compiled classes for the {@link Pregenerate} declarations and
+ * writes the generated classes to an output directory, which should be packaged with the scanned classes.
+ * <p>The pre-generated classes are named by {@link DynamicMaker#getPregeneratedName(Class, Class[], Class[], DynamicMaker.DispatchMode, DynamicMaker.VariableLayout)},
+ * a {@link DynamicMaker} uses them instead of generating the classes at runtime, so no code is generated at startup, and
+ * the classes can be archived by CDS like any other class in the jar.
+ * <p>Usage: {@code AotGenerator <output directory> [--dispatch=<mode>] [--layout=<layout>] <class directory>...}, the
+ * scanned classes must be in the class path. The classes specialized for the dynamic classes in the
+ * {@link DynamicMaker.VariableLayout#FIELDS} layout can not be pre-generated.
+ *
+ * @author EBwilson
+ */
+public class AotGenerator {
+	private final Maker maker;
+	private final ASMGenerator generator;
+
+	public AotGenerator(DynamicMaker.DispatchMode mode, DynamicMaker.VariableLayout layout) {
+		if (layout == DynamicMaker.VariableLayout.FIELDS)
+			throw new IllegalHandleException("the classes in the FIELDS layout can not be pre-generated");
+
+		maker = new Maker();
+		maker.setDispatchMode(mode);
+		maker.setVariableLayout(layout);
+		generator = new ASMGenerator(new BaseClassLoader(AotGenerator.class.getClassLoader()), Opcodes.V17);
+	}
+
+	public static void main(String[] args) throws IOException, ClassNotFoundException {
+		if (args.length < 1)
+			throw new IllegalArgumentException("usage: AotGenerator <output directory> [--dispatch=<mode>] [--layout=<layout>] <class directory>...");
+
+		Path output = Path.of(args[0]);
+		DynamicMaker.DispatchMode mode = DynamicMaker.DispatchMode.INLINE_CACHE;
+		DynamicMaker.VariableLayout layout = DynamicMaker.VariableLayout.HASH_MAP;
+		ArrayList<Path> roots = new ArrayList<>();
+
+		for (int i = 1; i < args.length; i++) {
+			String arg = args[i];
+			if (arg.startsWith("--dispatch=")) mode = DynamicMaker.DispatchMode.valueOf(arg.substring("--dispatch=".length()));
+			else if (arg.startsWith("--layout=")) layout = DynamicMaker.VariableLayout.valueOf(arg.substring("--layout=".length()));
+			else roots.add(Path.of(arg));
+		}
+
+		AotGenerator aot = new AotGenerator(mode, layout);
+		int count = 0;
+		for (Path root : roots) {
+			for (Pregenerate declaration : scan(root)) {
+				aot.write(output, declaration.base(), declaration.interfaces(), declaration.aspects().length == 0 ? null : declaration.aspects());
+				count++;
+			}
+		}
+
+		System.out.println("pre-generated " + count + " dynamic types into " + output);
+	}
+
+	/**
+	 * Find all {@link Pregenerate} declarations on the classes in a class directory.
+	 *
+	 * @param root The root of the class directory, the classes must be loadable by the class loader of this class
+	 * @return The declarations
+	 */
+	public static List<Pregenerate> scan(Path root) throws IOException, ClassNotFoundException {
+		ArrayList<Pregenerate> res = new ArrayList<>();
+		if (!Files.isDirectory(root)) return res;
+
+		ArrayList<Path> files = new ArrayList<>();
+		try (Stream<Path> stream = Files.walk(root)) {
+			stream.filter(p -> p.toString().endsWith(".class") && !p.getFileName().toString().equals("module-info.class")).forEach(files::add);
+		}
+
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		for (Path file : files) {
+			String name = root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), ".");
+			Class<?> clazz = Class.forName(name.substring(0, name.length() - ".class".length()), false, loader);
+
+			res.addAll(List.of(clazz.getAnnotationsByType(Pregenerate.class)));
+		}
+
+		return res;
+	}
+
+	/**
+	 * Generate the bytecode of a dynamic type, the class is named by {@link DynamicMaker#getPregeneratedName(Class, Class[], Class[], DynamicMaker.DispatchMode, DynamicMaker.VariableLayout)}.
+	 *
+	 * @param base       The base class
+	 * @param interfaces The interfaces implemented by the dynamic type
+	 * @param aspects    The aspect interfaces, null for the full delegation
+	 * @return The bytecode of the class
+	 */
+	public byte[] generate(Class<?> base, Class<?>[] interfaces, Class<?>[] aspects) {
+		ClassInfo<?> classInfo = maker.makeClassInfo(base, interfaces, aspects);
+		String name = DynamicMaker.getPregeneratedName(base, interfaces, aspects, maker.getDispatchMode(), maker.getVariableLayout());
+
+		ClassWriter writer = new ClassWriter(0);
+		new ClassReader(generator.genByteCode(classInfo)).accept(new ClassRemapper(writer, new SimpleRemapper(classInfo.internalName(), name.replace('.', '/'))), 0);
+
+		return writer.toByteArray();
+	}
+
+	/**
+	 * Generate a dynamic type and write it to the output directory.
+	 *
+	 * @see AotGenerator#generate(Class, Class[], Class[])
+	 */
+	public void write(Path output, Class<?> base, Class<?>[] interfaces, Class<?>[] aspects) throws IOException {
+		String name = DynamicMaker.getPregeneratedName(base, interfaces, aspects, maker.getDispatchMode(), maker.getVariableLayout());
+		Path file = output.resolve(name.replace('.', '/') + ".class");
+
+		Files.createDirectories(file.getParent());
+		Files.write(file, generate(base, interfaces, aspects));
+	}
+
+	private static class Maker extends DynamicMaker {
+		Maker() {
+			super(null);
+		}
+
+		@Override
+		protected <T> Class<? extends T> generateClass(Class<T> baseClass, Class<?>[] interfaces, Class<?>[] aspects) {
+			throw new IllegalHandleException("the ahead-of-time maker does not generate classes at runtime");
+		}
+	}
+}
@@ -1,7 +1,7 @@
 package dynamilize;
 
+import java.util.ArrayDeque;
 import java.util.Arrays;
-import java.util.Stack;
 
 /**
  * The encapsulation object of the actual parameter list records an actual parameter list and provides a
@@ -9,23 +9,21 @@ import java.util.Stack;
  * referencing functions.
  * <p>The parameter table object is a reusable object. After referencing, please use {@link ArgumentList#recycle()} to recycle the
  * object to reduce the frequency of heap memory updates.
+ * <p>The recycled instances and argument arrays are held in pools local to the current thread, so the calls from
+ * different threads never contend on the pools, an object recycled on another thread than the one that obtained it
+ * just goes to the pool of the recycling thread.
  *
  * @author EBwilson
  */
 public class ArgumentList {
+	/** The max count of the instances, and of the argument arrays of each length, held by the pool of a thread. */
 	public static int MAX_INSTANCE_STACK = 2048;
+	/** The argument arrays whose length is not less than this value are not pooled. */
+	public static final int MAX_POOLED_LENGTH = 64;
 
-	@SuppressWarnings("unchecked")
-	public static final Stack<Object[]>[] ARG_LEN_MAP = new Stack[64];
 	public static final Object[] EMP_ARG = new Object[0];
 
-	static {
-		for (int i = 1; i < ARG_LEN_MAP.length; i++) {
-			ARG_LEN_MAP[i] = new Stack<>();
-		}
-	}
-
-	private static final Stack<ArgumentList> INSTANCES = new Stack<>();
+	private static final ThreadLocal<Pool> POOLS = ThreadLocal.withInitial(Pool::new);
 
 	private Object[] args;
 	private FunctionType type;
@@ -33,18 +31,25 @@ public class ArgumentList {
 	/** package-private constructor, not allowed for direct external use. */
 	ArgumentList() {}
 
-	public static synchronized Object[] getList(int len) {
+	public static Object[] getList(int len) {
 		if (len == 0) return EMP_ARG;
+		if (len >= MAX_POOLED_LENGTH) return new Object[len];
 
-		Stack<Object[]> stack = ARG_LEN_MAP[len];
-		return stack.isEmpty() ? new Object[len] : stack.pop();
+		Object[] res = POOLS.get().list(len).poll();
+		if (res != null) return res;
+
+		FlightEvents.underflow("ArgumentList.list");
+		return new Object[len];
 	}
 
 	public static void recycleList(Object[] list) {
-		if (list.length == 0) return;
+		if (list.length == 0 || list.length >= MAX_POOLED_LENGTH) return;
 
-		Stack<Object[]> stack = ARG_LEN_MAP[list.length];
-		if (stack.size() > MAX_INSTANCE_STACK) return;
+		ArrayDeque<Object[]> stack = POOLS.get().list(list.length);
+		if (stack.size() >= MAX_INSTANCE_STACK) {
+			FlightEvents.overflow("ArgumentList.list", MAX_INSTANCE_STACK);
+			return;
+		}
 		stack.push(list);
 	}
 
@@ -57,22 +62,30 @@ public class ArgumentList {
 	 * @param args Actual parameter list
 	 * @return Encapsulate parameter objects
 	 */
-	public static synchronized ArgumentList as(Object... args) {
-		ArgumentList res = INSTANCES.isEmpty() ? new ArgumentList() : INSTANCES.pop();
+	public static ArgumentList as(Object... args) {
+		ArgumentList res = obtain();
 		res.args = args;
 		res.type = FunctionType.inst(args);
 
 		return res;
 	}
 
-	public static synchronized ArgumentList asWithType(FunctionType type, Object... args) {
-		ArgumentList res = INSTANCES.isEmpty() ? new ArgumentList() : INSTANCES.pop();
+	public static ArgumentList asWithType(FunctionType type, Object... args) {
+		ArgumentList res = obtain();
 		res.args = args;
 		res.type = type;
 
 		return res;
 	}
 
+	private static ArgumentList obtain() {
+		ArgumentList res = POOLS.get().instances.poll();
+		if (res != null) return res;
+
+		FlightEvents.underflow("ArgumentList");
+		return new ArgumentList();
+	}
+
 	/**
 	 * Recycle the instance and push it back onto the stack. If the stack has reached its maximum capacity,
 	 * it will not continue to be inserted into the instance stack.
@@ -80,9 +93,14 @@ public class ArgumentList {
 	public void recycle() {
 		args = null;
 		type = null;
-		if (INSTANCES.size() >= MAX_INSTANCE_STACK) return;
 
-		INSTANCES.add(this);
+		ArrayDeque<ArgumentList> instances = POOLS.get().instances;
+		if (instances.size() >= MAX_INSTANCE_STACK) {
+			FlightEvents.overflow("ArgumentList", MAX_INSTANCE_STACK);
+			return;
+		}
+
+		instances.push(this);
 	}
 
 	/**
@@ -122,4 +140,16 @@ public class ArgumentList {
 		String arg = Arrays.toString(args);
 		return '(' + arg.substring(1, arg.length() - 1) + ')';
 	}
+
+	private static class Pool {
+		final ArrayDeque<ArgumentList> instances = new ArrayDeque<>();
+		@SuppressWarnings("unchecked")
+		final ArrayDeque<Object[]>[] lists = new ArrayDeque[MAX_POOLED_LENGTH];
+
+		ArrayDeque<Object[]> list(int len) {
+			ArrayDeque<Object[]> res = lists[len];
+			if (res == null) lists[len] = res = new ArrayDeque<>();
+			return res;
+		}
+	}
 }
@@ -2,6 +2,7 @@ package dynamilize;
 
 import java.util.Arrays;
 import java.util.Objects;
+import java.util.Set;
 
 /**
  * A container for storing superclasses of classes and implementing interfaces, used to quickly confirm the
@@ -13,14 +14,30 @@ class ClassImplements<T> {
 	final Class<T> base;
 	final Class<?>[] interfaces;
 	final Class<?>[] aspects;
+	/** The dynamic class that the generated class is specialized for, null if the class is shared by all dynamic classes. */
+	final DynamicClass layout;
+	/** The names of the methods that the generated class overrides, null if all overridable methods are overridden. */
+	final Set<String> stubs;
 	private int hash;
 
 	public ClassImplements(Class<T> base, Class<?>[] interfaces, Class<?>[] aspects) {
+		this(base, interfaces, aspects, null);
+	}
+
+	public ClassImplements(Class<T> base, Class<?>[] interfaces, Class<?>[] aspects, DynamicClass layout) {
+		this(base, interfaces, aspects, layout, null);
+	}
+
+	public ClassImplements(Class<T> base, Class<?>[] interfaces, Class<?>[] aspects, DynamicClass layout, Set<String> stubs) {
 		this.base = base;
 		this.interfaces = interfaces;
 		this.aspects = aspects;
+		this.layout = layout;
+		this.stubs = stubs;
 		this.hash = Objects.hash(base);
 		hash = 31 * hash + Arrays.hashCode(interfaces) ^ Arrays.hashCode(aspects);
+		hash = 31 * hash + System.identityHashCode(layout);
+		hash = 31 * hash + Objects.hashCode(stubs);
 	}
 
 	@Override
@@ -32,7 +49,7 @@ class ClassImplements<T> {
 	public boolean equals(Object o) {
 		if (this == o) return true;
 		if (!(o instanceof ClassImplements<?> that)) return false;
-		return base.equals(that.base) && interfaces.length == that.interfaces.length && (aspects != null && that.aspects != null && aspects.length == that.aspects.length) && hash == that.hash;
+		return hash == that.hash && base.equals(that.base) && layout == that.layout && Objects.equals(stubs, that.stubs) && Arrays.equals(interfaces, that.interfaces) && Arrays.equals(aspects, that.aspects);
 	}
 
 	@Override
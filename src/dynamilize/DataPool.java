@@ -1,11 +1,19 @@
 package dynamilize;
 
+import java.lang.invoke.SwitchPoint;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Stack;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The information container used for storing and handling dynamic object data should not be accessed
@@ -16,6 +24,12 @@ import java.util.Stack;
  * <p>Access to pool information is always based on the nearest principle, which means that if no data is found
  * in the current pool, the data from the parent pool with this variable/function that is closest to the
  * instance's pool will be used as the reference.
+ * <p>The functions of the hierarchy are resolved through a flattened lookup table, which is built lazily and
+ * rebuilt only after the functions of a pool in the hierarchy changed, so the cost of a selection does not
+ * depend on the depth of the hierarchy.
+ * <p>Each pool has a {@linkplain DataPool#version() version} and a {@linkplain DataPool#switchPoint() switch point}
+ * covering the functions of its hierarchy and its fallback pool, a function change of a pool only outdates the pool
+ * itself and the pools inheriting it, the caches of the unrelated hierarchies are kept.
  *
  * @author EBwilson
  */
@@ -29,11 +43,39 @@ public class DataPool {
 	private static final List<IVariable> TMP_VAR = new ArrayList<>();
 	public static final IVariable[] EMP_VARS = new IVariable[0];
 
-	private final DataPool superPool;
+	/** The max count of the type matching results memoized for the overloads of a function name in a pool hierarchy. */
+	public static int MAX_MATCH_CACHE = 256;
 
-	private final Map<String, Map<FunctionType, IFunctionEntry>> funcPool = new HashMap<>();
+	/** The registered pools that have no parent pool and no fallback pool, all registered pools are reachable from them by the heirs. Guarded by the class lock. */
+	private static final Set<DataPool> ROOTS = Collections.newSetFromMap(new WeakHashMap<>());
+
+	final DataPool superPool;
+	final DataPool fallback;
+
+	/** The count of function changes in this pool. */
+	volatile int modCount;
+
+	/**
+	 * Whether this pool is registered to its parent pool and fallback pool, a pool is registered when its version is
+	 * first required, the changes of the pools it depends on are propagated to it since then.
+	 */
+	private volatile boolean registered;
+	/** The count of function changes in the hierarchy and the fallback pool of this pool since it is registered. */
+	private volatile int version;
+	/** The switch point invalidated when the {@linkplain DataPool#version version} of this pool changes. */
+	private volatile SwitchPoint switchPoint;
+	/** The registered pools that use this pool as their parent pool or fallback pool, held weakly. Guarded by the class lock. */
+	private Set<DataPool> heirs;
+	/** The name of the dynamic class or the Java class that this pool holds the functions of, it is used to identify the functions in the {@linkplain FunctionMetrics metrics}. */
+	String owner;
+
+	// the functions may be changed while another thread is building the lookup table, the table built from an
+	// outdated view is dropped since its version is older
+	private final Map<String, Map<FunctionType, IFunctionEntry>> funcPool = new ConcurrentHashMap<>();
 	private final Map<String, IVariable> varPool = new HashMap<>();
 
+	private volatile LookupTable lookupTable;
+
 	/**
 	 * Create a pool object and bind it to the parent pool, which can be null. In this case, the pool should
 	 * be a method/field reference of the delegated type.
@@ -42,7 +84,61 @@ public class DataPool {
 	 * @param superPool The parent pool of this pool
 	 */
 	public DataPool(DataPool superPool) {
+		this(superPool, null);
+	}
+
+	/**
+	 * Create a pool object with a fallback pool, if nothing can be found in the whole hierarchy of this pool,
+	 * the query will be transferred to the fallback pool. This is usually used to bind the data pool of the
+	 * delegated java type to a dynamic instance.
+	 *
+	 * @param superPool The parent pool of this pool
+	 * @param fallback  The pool used when the hierarchy of this pool does not have the queried data, can be null
+	 */
+	public DataPool(DataPool superPool, DataPool fallback) {
 		this.superPool = superPool;
+		this.fallback = fallback;
+	}
+
+	/**
+	 * Get the version of the functions visible from this pool, it is increased each time the functions of this pool,
+	 * a pool in its hierarchy or its fallback pool change. The result selected from this pool with an older version is outdated.
+	 */
+	int version() {
+		if (!registered) register();
+		return version;
+	}
+
+	/** Get the switch point that will be invalidated when the {@linkplain DataPool#version() version} of this pool changes next time. */
+	SwitchPoint switchPoint() {
+		if (!registered) register();
+		return switchPoint;
+	}
+
+	private static synchronized void register(DataPool pool) {
+		if (pool.registered) return;
+
+		if (pool.superPool != null) {
+			register(pool.superPool);
+			pool.superPool.heirs().add(pool);
+		}
+		if (pool.fallback != null) {
+			register(pool.fallback);
+			pool.fallback.heirs().add(pool);
+		}
+		if (pool.superPool == null && pool.fallback == null) ROOTS.add(pool);
+
+		pool.switchPoint = new SwitchPoint();
+		pool.registered = true;
+	}
+
+	private void register() {
+		register(this);
+	}
+
+	private Set<DataPool> heirs() {
+		if (heirs == null) heirs = Collections.newSetFromMap(new WeakHashMap<>());
+		return heirs;
 	}
 
 	public void init(DynamicObject<?> self, Object... args) {
@@ -64,7 +160,6 @@ public class DataPool {
 		if (fun == null) return;
 
 		fun.getFunc().invoke((DynamicObject<Object>) self, args);
-		lis.type().recycle();
 		lis.recycle();
 	}
 
@@ -73,10 +168,7 @@ public class DataPool {
 	}
 
 	public Function<?, ?> getConstructor(Class<?>... argType) {
-		FunctionType type = FunctionType.inst(argType);
-		Function<?, ?> fun = select(init, type).getFunc();
-		type.recycle();
-		return fun;
+		return select(init, FunctionType.inst(argType)).getFunc();
 	}
 
 	/**
@@ -100,18 +192,56 @@ public class DataPool {
 	 */
 	public void setFunction(String name, Function<?, ?> function, Class<?>... argsType) {
 		FunctionType type = FunctionType.inst(argsType);
-		funcPool.computeIfAbsent(name, n -> new HashMap<>())
+		funcPool.computeIfAbsent(name, n -> new ConcurrentHashMap<>())
 				.put(type, new FunctionEntry<>(name, function, type));
+		functionChanged();
 	}
 
 	public <R, S> void setFunction(String name, Function.SuperGetFunction<S, R> func, Class<?>[] argTypes) {
 		FunctionType type = FunctionType.inst(argTypes);
-		funcPool.computeIfAbsent(name, n -> new HashMap<>())
+		funcPool.computeIfAbsent(name, n -> new ConcurrentHashMap<>())
 				.put(type, new FunctionEntry<>(name, func, type, this));
+		functionChanged();
 	}
 
 	public void setFunction(IFunctionEntry functionEntry) {
-		funcPool.computeIfAbsent(functionEntry.getName(), e -> new HashMap<>()).put(functionEntry.getType(), functionEntry);
+		funcPool.computeIfAbsent(functionEntry.getName(), e -> new ConcurrentHashMap<>()).put(functionEntry.getType(), functionEntry);
+		functionChanged();
+	}
+
+	/**
+	 * Mark the functions of this pool as changed, the versions of this pool and all registered pools inheriting it
+	 * are increased, and their switch points are invalidated.
+	 */
+	private void functionChanged() {
+		synchronized (DataPool.class) {
+			modCount++;
+			if (registered) invalidate(List.of(this));
+		}
+	}
+
+	/** Outdate the versions of all registered pools, it is used when the way the functions are selected changed. */
+	static synchronized void invalidateAll() {
+		invalidate(new ArrayList<>(ROOTS));
+	}
+
+	private static void invalidate(Collection<DataPool> changed) {
+		assert Thread.holdsLock(DataPool.class);
+
+		ArrayList<SwitchPoint> old = new ArrayList<>();
+		Set<DataPool> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+		ArrayDeque<DataPool> queue = new ArrayDeque<>(changed);
+		while (!queue.isEmpty()) {
+			DataPool pool = queue.poll();
+			if (!pool.registered || !visited.add(pool)) continue;
+
+			pool.version++;
+			old.add(pool.switchPoint);
+			pool.switchPoint = new SwitchPoint();
+			if (pool.heirs != null) queue.addAll(pool.heirs);
+		}
+
+		if (!old.isEmpty()) SwitchPoint.invalidateAll(old.toArray(new SwitchPoint[0]));
 	}
 
 	/**
@@ -125,10 +255,11 @@ public class DataPool {
 		if (var != null) return var;
 
 		if (superPool != null) {
-			return superPool.getVariable(name);
+			var = superPool.getVariable(name);
+			if (var != null) return var;
 		}
 
-		return null;
+		return fallback == null ? null : fallback.getVariable(name);
 	}
 
 	/**
@@ -146,42 +277,63 @@ public class DataPool {
 	 * transferred to a type signature matching function. Therefore, when calling a function with high
 	 * performance requirements, it is recommended to explicitly state the type signature on the actual
 	 * parameter column, which can effectively improve the speed of overload decision-making.
-	 * <p>If the function is not defined, return null.
+	 * <p>If the function is not defined in the hierarchy, the fallback pool will be searched, and if it is still
+	 * not found, return null.
 	 *
 	 * @param name The name of the function
 	 * @param type Parameter types of functions
 	 * @return Select the function entry of the selected function
 	 */
 	public IFunctionEntry select(String name, FunctionType type) {
-		Map<FunctionType, IFunctionEntry> map;
-		IFunctionEntry res;
+		Overloads overloads = lookupTable().get(name);
+		if (overloads != null) {
+			IFunctionEntry res = overloads.select(type);
+			if (res != null) return res;
+		}
 
-		DataPool curr = this;
-		while (curr != null) {
-			map = curr.funcPool.get(name);
-			if (map != null) {
-				res = map.get(type);
-				if (res != null) return res;
-			}
+		return fallback == null ? null : fallback.select(name, type);
+	}
+
+	/**
+	 * Get the flattened lookup table of the functions in the hierarchy of this pool (the fallback pool is not
+	 * included), the table will be rebuilt if it is outdated. A pool that has no functions declared by itself
+	 * uses the table of its parent pool, so the instance pools do not build their own tables.
+	 */
+	private LookupTable lookupTable() {
+		if (funcPool.isEmpty() && superPool != null) return superPool.lookupTable();
+
+		int version = version();
+		LookupTable res = lookupTable;
+		if (res == null || res.version != version) {
+			FlightEvents.LookupTableRebuild event = new FlightEvents.LookupTableRebuild();
+			event.begin();
+
+			lookupTable = res = new LookupTable(version, flatten());
 
-			curr = curr.superPool;
+			if (event.shouldCommit()) {
+				event.owner = owner;
+				event.names = res.overloads.size();
+				event.commit();
+			}
 		}
 
-		curr = this;
-		while (curr != null) {
-			map = curr.funcPool.get(name);
-			if (map != null) {
-				for (Map.Entry<FunctionType, IFunctionEntry> entry : map.entrySet()) {
-					if (entry.getKey().match(type.getTypes())) {
-						return entry.getValue();
-					}
-				}
+		return res;
+	}
+
+	private Map<String, Overloads> flatten() {
+		HashMap<String, ArrayList<DataPool>> levels = new HashMap<>();
+		for (DataPool curr = this; curr != null; curr = curr.superPool) {
+			for (String name : curr.funcPool.keySet()) {
+				levels.computeIfAbsent(name, n -> new ArrayList<>()).add(curr);
 			}
+		}
 
-			curr = curr.superPool;
+		HashMap<String, Overloads> res = new HashMap<>();
+		for (Map.Entry<String, ArrayList<DataPool>> entry : levels.entrySet()) {
+			res.put(entry.getKey(), new Overloads(entry.getKey(), entry.getValue()));
 		}
 
-		return null;
+		return res;
 	}
 
 	public IVariable[] getVariables() {
@@ -199,56 +351,210 @@ public class DataPool {
 		return TMP_LIS.toArray(EMP_METS);
 	}
 
+	/**
+	 * Get the names of all functions declared in the hierarchy of this pool, the fallback pool is not included.
+	 * <strong>The returned set is shared and must not be modified</strong>, a new set is returned after the functions changed.
+	 */
+	Set<String> functionNames() {
+		return lookupTable().overloads.keySet();
+	}
+
 	/** Obtain read-only objects for the pool. */
 	public <S> ReadOnlyPool getReader(DynamicObject<S> owner) {
 		return new ReadOnlyPool(this, owner, null);
 	}
 
+	/**
+	 * Get the super pointer of the owner for the functions declared in this pool, it views the parent pool of this pool.
+	 * If the alternative is the base pointer of the owner, the pointer is cached on it and the same pointer is returned
+	 * for each call, otherwise a new pointer is created.
+	 *
+	 * @param owner       The object calling the super functions
+	 * @param alternative The pointer used when nothing can be found in the parent pool, usually {@link DynamicObject#baseSuperPointer()}
+	 * @return The super pointer, or the alternative if this pool has no parent pool
+	 */
 	public <T> ReadOnlyPool getSuper(DynamicObject<T> owner, ReadOnlyPool alternative) {
-		return superPool == null ? alternative : ReadOnlyPool.get(superPool, owner, alternative);
+		if (superPool == null) return alternative;
+		if (alternative != null && alternative.owner == owner) return alternative.superOf(superPool);
+
+		return new ReadOnlyPool(superPool, owner, alternative);
 	}
 
-	public static class ReadOnlyPool {
-		public static int MAX_CHANCES = 2048;
-		private static final Stack<ReadOnlyPool> POOLS = new Stack<>();
+	private static class LookupTable {
+		final int version;
+		final Map<String, Overloads> overloads;
 
-		private DataPool pool;
-		private DynamicObject<?> owner;
-		private ReadOnlyPool alternative;
+		LookupTable(int version, Map<String, Overloads> overloads) {
+			this.version = version;
+			this.overloads = overloads;
+		}
 
-		private final boolean hold;
+		Overloads get(String name) {
+			return overloads.get(name);
+		}
+	}
 
-		private ReadOnlyPool() {
-			hold = false;
+	/**
+	 * The resolved overloads of a function name in a pool hierarchy. The exact table holds the nearest entry of
+	 * each type, the ordered arrays hold all entries from the nearest pool to the farthest for the type matching.
+	 * <p>The results of the type matching are memoized by the argument types (including the misses), since the
+	 * overloads are rebuilt after any function changes in the hierarchy, the memoized results never outdate.
+	 * <p>While a {@linkplain FunctionMetrics metrics sink} is installed, the selected entries are instrumented, and the
+	 * instrumented entries are kept until the overloads are rebuilt, which happens after the sink is changed.
+	 */
+	private static class Overloads {
+		private static final IFunctionEntry NO_MATCH = new FunctionEntry<>("<none>", (s, a) -> null, null);
+
+		final Map<FunctionType, IFunctionEntry> exact = new HashMap<>();
+		final FunctionType[] types;
+		final IFunctionEntry[] entries;
+		final ConcurrentHashMap<FunctionType, IFunctionEntry> matched = new ConcurrentHashMap<>();
+
+		final String name;
+		final List<DataPool> levels;
+		private volatile ConcurrentHashMap<IFunctionEntry, FunctionMetrics.Instrumented> instrumented;
+
+		Overloads(String name, List<DataPool> levels) {
+			this.name = name;
+			this.levels = levels;
+
+			ArrayList<FunctionType> types = new ArrayList<>();
+			ArrayList<IFunctionEntry> entries = new ArrayList<>();
+
+			for (DataPool level : levels) {
+				for (Map.Entry<FunctionType, IFunctionEntry> entry : level.funcPool.get(name).entrySet()) {
+					exact.putIfAbsent(entry.getKey(), entry.getValue());
+					types.add(entry.getKey());
+					entries.add(entry.getValue());
+				}
+			}
+
+			this.types = types.toArray(new FunctionType[0]);
+			this.entries = entries.toArray(EMP_METS);
 		}
 
-		private ReadOnlyPool(DataPool pool, DynamicObject<?> owner, ReadOnlyPool alternative) {
-			this.pool = pool;
-			this.owner = owner;
-			this.alternative = alternative;
+		IFunctionEntry select(FunctionType type) {
+			IFunctionEntry res = exact.get(type);
+			if (res != null) return FunctionMetrics.sink == null ? res : instrument(res, true);
+
+			res = matched.get(type);
+			if (res == null) {
+				FlightEvents.Resolution event = new FlightEvents.Resolution();
+				event.begin();
+
+				Class<?>[] argTypes = type.getTypes();
+				res = NO_MATCH;
+				for (int i = 0; i < types.length; i++) {
+					if (types[i].match(argTypes)) {
+						res = entries[i];
+						break;
+					}
+				}
 
-			hold = true;
+				if (matched.size() < MAX_MATCH_CACHE) matched.put(type, res);
+
+				if (event.shouldCommit()) {
+					event.function = name;
+					event.argumentTypes = type.toString();
+					event.matched = res != NO_MATCH;
+					event.candidates = types.length;
+					event.commit();
+				}
+			}
+
+			if (res == NO_MATCH) return null;
+			return FunctionMetrics.sink == null ? res : instrument(res, false);
 		}
 
-		private static ReadOnlyPool get(DataPool source, DynamicObject<?> owner, ReadOnlyPool alternative) {
-			ReadOnlyPool res = POOLS.isEmpty() ? new ReadOnlyPool() : POOLS.pop();
-			res.pool = source;
-			res.owner = owner;
-			res.alternative = alternative;
+		private IFunctionEntry instrument(IFunctionEntry entry, boolean exact) {
+			FunctionSink sink = FunctionMetrics.sink;
+			if (sink == null) return entry;
+
+			ConcurrentHashMap<IFunctionEntry, FunctionMetrics.Instrumented> map = instrumented;
+			if (map == null) {
+				synchronized (this) {
+					if ((map = instrumented) == null) instrumented = map = new ConcurrentHashMap<>();
+				}
+			}
+
+			FunctionMetrics.Instrumented res = map.computeIfAbsent(entry, e -> FunctionMetrics.instrument(e, owner(e), sink));
+			res.recorder.resolved(exact);
 
 			return res;
 		}
 
-		public void recycle() {
-			if (hold) return;
+		private String owner(IFunctionEntry entry) {
+			for (DataPool level : levels) {
+				if (level.funcPool.get(name).get(entry.getType()) != entry) continue;
+
+				for (DataPool curr = level; curr != null; curr = curr.superPool) {
+					if (curr.owner != null) return curr.owner;
+				}
+			}
+
+			return "<anonymous>";
+		}
+	}
+
+	/**
+	 * The read-only view of a data pool bound to an owner, it is used as the super pointer of the functions. A view is
+	 * immutable, the super pointers of an owner are created once for each level of its hierarchy and cached on the
+	 * {@linkplain DynamicObject#baseSuperPointer() base pointer} of the owner, so the super calls do not allocate and
+	 * the pointers need not be recycled.
+	 */
+	public static class ReadOnlyPool {
+		private static final ReadOnlyPool[] EMPTY = new ReadOnlyPool[0];
+
+		/**
+		 * Super pointers are cached per owner and no longer pooled.
+		 *
+		 * @deprecated This field is not used
+		 */
+		@Deprecated
+		public static int MAX_CHANCES = 2048;
+
+		private final DataPool pool;
+		private final DynamicObject<?> owner;
+		private final ReadOnlyPool alternative;
+
+		/** The super pointers of the owner created from this base pointer, copied on write. */
+		private volatile ReadOnlyPool[] supers = EMPTY;
+
+		private ReadOnlyPool(DataPool pool, DynamicObject<?> owner, ReadOnlyPool alternative) {
+			this.pool = pool;
+			this.owner = owner;
+			this.alternative = alternative;
+		}
+
+		/** Get the cached super pointer of the owner viewing the given pool, with this pointer as the alternative. */
+		private ReadOnlyPool superOf(DataPool level) {
+			for (ReadOnlyPool p : supers) {
+				if (p.pool == level) return p;
+			}
 
-			pool = null;
-			owner = null;
-			alternative = null;
+			synchronized (this) {
+				ReadOnlyPool[] curr = supers;
+				for (ReadOnlyPool p : curr) {
+					if (p.pool == level) return p;
+				}
 
-			if (POOLS.size() < MAX_CHANCES) POOLS.push(this);
+				ReadOnlyPool res = new ReadOnlyPool(level, owner, this);
+				ReadOnlyPool[] arr = Arrays.copyOf(curr, curr.length + 1);
+				arr[curr.length] = res;
+				supers = arr;
+
+				return res;
+			}
 		}
 
+		/**
+		 * Super pointers are immutable and cached now, they need not be recycled.
+		 *
+		 * @deprecated This method does nothing
+		 */
+		@Deprecated
+		public void recycle() {}
+
 		/** @see DynamicObject#getVar(String) */
 		public <T> T getVar(String name) {
 			IVariable var = pool.getVariable(name);
@@ -256,7 +562,7 @@ public class DataPool {
 			if (var == null) var = alternative == null ? null : alternative.getVar(name);
 
 			if (var == null)
-				throw new IllegalHandleException("variable " + name + " was not definer");
+				throw FlightEvents.noSuchVariable(name);
 
 			return var.get(owner);
 		}
@@ -266,7 +572,7 @@ public class DataPool {
 			IFunctionEntry func = pool.select(name, type);
 			if (func == null) {
 				if (alternative == null)
-					throw new IllegalHandleException("no such function: " + name + type);
+					throw FlightEvents.noSuchFunction(name, type);
 
 				return alternative.getFunc(name, type);
 			}
@@ -278,7 +584,6 @@ public class DataPool {
 		public <R> R invokeFunc(String name, Object... args) {
 			ArgumentList lis = ArgumentList.as(args);
 			R r = invokeFunc(name, lis);
-			lis.type().recycle();
 			lis.recycle();
 			return r;
 		}
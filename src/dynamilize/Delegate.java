@@ -8,7 +8,6 @@ public interface Delegate<R> {
 	default R invoke(Object... args) {
 		ArgumentList lis = ArgumentList.as(args);
 		R r = invoke(lis);
-		lis.type().recycle();
 		lis.recycle();
 		return r;
 	}
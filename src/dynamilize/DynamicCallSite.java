@@ -0,0 +1,326 @@
+package dynamilize;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.invoke.MutableCallSite;
+import java.lang.invoke.SwitchPoint;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * The call site linked by the {@code invokedynamic} instructions in the generated dynamic methods, used when
+ * the {@link DynamicMaker.DispatchMode#INVOKE_DYNAMIC} is enabled.
+ * <p>The target of the call site is a chain of method handles, each link guards a pool resolution identity
+ * (the same as the entries of {@link InlineCache}) and calls the function selected for it with the function
+ * object bound as a constant, so that the JIT is able to inline the dynamic function through the generated
+ * method like an ordinary virtual call.
+ * <p>Each link is guarded by the {@linkplain DataPool#switchPoint() switch points} of the parent pool and the fallback
+ * pool of its identity, a function change in that hierarchy (such as {@link DynamicClass#setFunction(String, Function, Class[])})
+ * will invalidate the link, and it will be relinked on the next call, the links of the other identities are kept.
+ * Function changes of an instance pool are not linked, such pools select the function on each call.
+ * <p>The generated methods that have no more than {@link FixedFunction#MAX_ARITY} parameters pass the arguments
+ * directly (see {@link DynamicCallSite#bootstrapFixed(MethodHandles.Lookup, String, MethodType, String)}), the linked
+ * targets call {@link Function#call(DynamicObject, FunctionType)} with the same count of arguments.
+ * <p>The generated methods of the shapes specialized by {@link PrimitiveFunction} pass the primitive arguments directly
+ * (see {@link DynamicCallSite#bootstrapTyped(MethodHandles.Lookup, String, MethodType, String)}), a function of the
+ * specialized type is linked without boxing, any other function is linked through the boxed path.
+ * <p>A call site links at most {@link InlineCache#MAX_POLYMORPHIC} pool identities, if more pass through it, the
+ * call site will become megamorphic and select the function from the pool directly on each call, until a linked
+ * identity is invalidated.
+ * <p><strong>This type is referenced by the generated code, generally you should not use it anywhere else.</strong>
+ *
+ * @author EBwilson
+ */
+public class DynamicCallSite extends MutableCallSite {
+	/**
+	 * The type of the call sites in generated methods: {@code (DynamicObject self, DataPool pool, Object[] args)Object},
+	 * the type of {@code self} can be any subtype of {@link DynamicObject}.
+	 */
+	public static final MethodType CALL_TYPE = MethodType.methodType(Object.class, DynamicObject.class, DataPool.class, Object[].class);
+
+	private static final MethodHandle RELINK;
+	private static final MethodHandle GENERIC;
+	private static final MethodHandle INVOKE_FUNC;
+	private static final MethodHandle CHECK_POOL;
+	private static final MethodHandle SELECT;
+	private static final MethodHandle[] CALL_FUNC = new MethodHandle[FixedFunction.MAX_ARITY + 1];
+	private static final HashMap<Class<?>, MethodHandle> UNBOX = new HashMap<>();
+
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+
+			RELINK = lookup.findVirtual(DynamicCallSite.class, "relink", CALL_TYPE);
+			GENERIC = lookup.findVirtual(DynamicCallSite.class, "generic", CALL_TYPE);
+			INVOKE_FUNC = lookup.findStatic(DynamicCallSite.class, "invokeFunction", MethodType.methodType(
+					Object.class, Function.class, FunctionType.class, DynamicObject.class, Object[].class
+			));
+			CHECK_POOL = lookup.findStatic(DynamicCallSite.class, "checkPool", MethodType.methodType(
+					boolean.class, DataPool.class, DataPool.class, DataPool.class
+			));
+			SELECT = lookup.findVirtual(DynamicCallSite.class, "select", MethodType.methodType(Function.class, DataPool.class));
+
+			for (int i = 0; i < CALL_FUNC.length; i++) {
+				CALL_FUNC[i] = lookup.findVirtual(Function.class, "call", MethodType.genericMethodType(i)
+						.insertParameterTypes(0, DynamicObject.class, FunctionType.class));
+			}
+
+			for (Class<?> type : new Class<?>[]{int.class, long.class, float.class, double.class, boolean.class}) {
+				String typeName = type.getName();
+				UNBOX.put(type, lookup.findStatic(DynamicCallSite.class, "unbox" + Character.toUpperCase(typeName.charAt(0)) + typeName.substring(1), MethodType.methodType(type, Object.class)));
+			}
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private final String name;
+	private final FunctionType type;
+	private final int arity;
+	/** The specialized function type of the call site, null if the arguments and the result are boxed. */
+	private final Class<?> shape;
+	private final MethodHandle apply;
+	private final MethodHandle fallback;
+
+	private final ArrayList<Link> links = new ArrayList<>();
+
+	private DynamicCallSite(String name, FunctionType type, MethodType callType, int arity, Class<?> shape) throws NoSuchMethodException, IllegalAccessException {
+		super(callType);
+		this.name = name;
+		this.type = type;
+		this.arity = arity;
+		this.shape = shape;
+
+		apply = shape == null ? null : MethodHandles.publicLookup().findVirtual(shape, "apply", callType.changeParameterType(0, DynamicObject.class).dropParameterTypes(1, 2));
+		fallback = adapt(collect(RELINK.bindTo(this)));
+		setTarget(fallback.asType(callType));
+	}
+
+	/**
+	 * The bootstrap method of the {@code invokedynamic} instructions in the generated dynamic methods.
+	 *
+	 * @param caller    The lookup of the generated class
+	 * @param name      The name of the function
+	 * @param callType  The type of the call site, must be compatible with {@link DynamicCallSite#CALL_TYPE}
+	 * @param typeField The name of the static field that holds the {@link FunctionType} of the function in the generated class
+	 * @return The call site
+	 * @throws IllegalHandleException If the call site type is not supported
+	 */
+	public static CallSite bootstrap(MethodHandles.Lookup caller, String name, MethodType callType, String typeField) throws Throwable {
+		if (!DynamicObject.class.isAssignableFrom(callType.parameterType(0)) || !callType.changeParameterType(0, DynamicObject.class).equals(CALL_TYPE))
+			throw new IllegalHandleException("unsupported call site type: " + callType);
+
+		return new DynamicCallSite(name, functionType(caller, typeField), callType, -1, null);
+	}
+
+	/**
+	 * The bootstrap method of the {@code invokedynamic} instructions in the generated dynamic methods that pass the
+	 * arguments directly, the type of the call site is {@code (DynamicObject self, DataPool pool, Object arg0, ...)Object},
+	 * with no more than {@link FixedFunction#MAX_ARITY} arguments of any reference type.
+	 *
+	 * @see DynamicCallSite#bootstrap(MethodHandles.Lookup, String, MethodType, String)
+	 */
+	public static CallSite bootstrapFixed(MethodHandles.Lookup caller, String name, MethodType callType, String typeField) throws Throwable {
+		int arity = callType.parameterCount() - 2;
+		if (arity < 0 || arity > FixedFunction.MAX_ARITY || callType.returnType() != Object.class
+				|| !DynamicObject.class.isAssignableFrom(callType.parameterType(0)) || callType.parameterType(1) != DataPool.class)
+			throw new IllegalHandleException("unsupported call site type: " + callType);
+
+		for (int i = 2; i < callType.parameterCount(); i++) {
+			if (callType.parameterType(i).isPrimitive())
+				throw new IllegalHandleException("unsupported call site type: " + callType);
+		}
+
+		return new DynamicCallSite(name, functionType(caller, typeField), callType, arity, null);
+	}
+
+	/**
+	 * The bootstrap method of the {@code invokedynamic} instructions in the generated dynamic methods of the shapes
+	 * specialized by {@link PrimitiveFunction}, the type of the call site is {@code (DynamicObject self, DataPool pool, *parameters*)*returnType*}
+	 * with the primitive parameters and return type of the method.
+	 *
+	 * @see DynamicCallSite#bootstrap(MethodHandles.Lookup, String, MethodType, String)
+	 * @see PrimitiveFunction#shapeOf(Class, Class[])
+	 */
+	public static CallSite bootstrapTyped(MethodHandles.Lookup caller, String name, MethodType callType, String typeField) throws Throwable {
+		Class<?> shape = callType.parameterCount() < 2 ? null : PrimitiveFunction.shapeOf(callType.returnType(), callType.dropParameterTypes(0, 2).parameterArray());
+		if (shape == null || !DynamicObject.class.isAssignableFrom(callType.parameterType(0)) || callType.parameterType(1) != DataPool.class)
+			throw new IllegalHandleException("unsupported call site type: " + callType);
+
+		return new DynamicCallSite(name, functionType(caller, typeField), callType, callType.parameterCount() - 2, shape);
+	}
+
+	private static FunctionType functionType(MethodHandles.Lookup caller, String typeField) throws Throwable {
+		return (FunctionType) caller.findStaticGetter(caller.lookupClass(), typeField, FunctionType.class).invoke();
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public FunctionType getType() {
+		return type;
+	}
+
+	private Object relink(DynamicObject<?> self, DataPool pool, Object[] args) {
+		// read the switch points before selecting, a change happened during the selection must invalidate the link
+		SwitchPoint[] guards = pool.modCount == 0 ? guardsOf(pool) : null;
+		Function<?, ?> func = select(pool);
+
+		if (guards != null && pool.modCount == 0) link(pool, guards, func);
+
+		return invokeFunction(func, type, self, args);
+	}
+
+	private Object generic(DynamicObject<?> self, DataPool pool, Object[] args) {
+		return invokeFunction(select(pool), type, self, args);
+	}
+
+	/** Adapt a handle receiving the argument array to the type of this call site. */
+	private MethodHandle collect(MethodHandle handle) {
+		return arity < 0 ? handle : handle.asCollector(Object[].class, arity);
+	}
+
+	/** Adapt a handle receiving and returning the boxed values to the primitive types of a specialized call site. */
+	private MethodHandle adapt(MethodHandle handle) {
+		if (shape == null) return handle;
+
+		MethodType callType = type().changeParameterType(0, DynamicObject.class);
+		MethodHandle res = handle.asType(callType.changeReturnType(Object.class));
+		if (callType.returnType() == void.class) return res.asType(callType);
+
+		return MethodHandles.filterReturnValue(res, UNBOX.get(callType.returnType()));
+	}
+
+	private Function<?, ?> select(DataPool pool) {
+		IFunctionEntry entry = pool.select(name, type);
+		if (entry == null)
+			throw FlightEvents.noSuchFunction(name, type);
+
+		return entry.getFunc();
+	}
+
+	private static SwitchPoint[] guardsOf(DataPool pool) {
+		return pool.fallback == null
+				? new SwitchPoint[]{pool.superPool.switchPoint()}
+				: new SwitchPoint[]{pool.superPool.switchPoint(), pool.fallback.switchPoint()};
+	}
+
+	private synchronized void link(DataPool pool, SwitchPoint[] guards, Function<?, ?> func) {
+		for (SwitchPoint sp : guards) {
+			if (sp.hasBeenInvalidated()) return;
+		}
+
+		links.removeIf(Link::isInvalidated);
+
+		if (links.size() >= InlineCache.MAX_POLYMORPHIC) {
+			// stay generic until any linked identity is invalidated, then the call site can be linked again
+			MethodHandle res = adapt(generic());
+			for (Link link : links) {
+				res = link.guard(res, fallback);
+			}
+			setTarget(res.asType(type()));
+			return;
+		}
+
+		MethodHandle test = MethodHandles.dropArguments(
+				MethodHandles.insertArguments(CHECK_POOL, 0, pool.superPool, pool.fallback),
+				0, DynamicObject.class
+		);
+		MethodHandle target;
+		if (shape != null && shape.isInstance(func)) {
+			target = MethodHandles.dropArguments(apply.bindTo(func), 1, DataPool.class);
+		} else {
+			MethodHandle invoke = arity < 0
+					? MethodHandles.insertArguments(INVOKE_FUNC, 0, func, type)
+					: MethodHandles.insertArguments(CALL_FUNC[arity].bindTo(func), 1, type);
+			target = adapt(MethodHandles.dropArguments(invoke, 1, DataPool.class));
+		}
+
+		links.add(new Link(test, target, guards));
+
+		MethodHandle chain = fallback;
+		for (Link link : links) {
+			chain = MethodHandles.guardWithTest(link.test, link.guard(link.target, fallback), chain);
+		}
+		setTarget(chain.asType(type()));
+	}
+
+	private MethodHandle generic() {
+		if (arity < 0) return GENERIC.bindTo(this);
+
+		// (self, pool, args...) -> select(pool).call(self, type, args...)
+		MethodHandle call = MethodHandles.filterArguments(
+				MethodHandles.insertArguments(CALL_FUNC[arity], 2, type),
+				0, SELECT.bindTo(this)
+		);
+		int[] reorder = new int[arity + 2];
+		reorder[0] = 1;
+		reorder[1] = 0;
+		for (int i = 2; i < reorder.length; i++) reorder[i] = i;
+
+		return MethodHandles.permuteArguments(call, MethodType.genericMethodType(arity).insertParameterTypes(0, DynamicObject.class, DataPool.class), reorder);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Object invokeFunction(Function<?, ?> func, FunctionType type, DynamicObject<?> self, Object[] args) {
+		ArgumentList lis = ArgumentList.asWithType(type, args);
+		Object res = ((Function<Object, Object>) func).invoke((DynamicObject<Object>) self, lis);
+		lis.recycle();
+		return res;
+	}
+
+	// the same conversions as the casts in the generated methods, any number can be returned for a numeric type
+	private static int unboxInt(Object value) {
+		return ((Number) value).intValue();
+	}
+
+	private static long unboxLong(Object value) {
+		return ((Number) value).longValue();
+	}
+
+	private static float unboxFloat(Object value) {
+		return ((Number) value).floatValue();
+	}
+
+	private static double unboxDouble(Object value) {
+		return ((Number) value).doubleValue();
+	}
+
+	private static boolean unboxBoolean(Object value) {
+		return (Boolean) value;
+	}
+
+	private static boolean checkPool(DataPool parent, DataPool fallback, DataPool pool) {
+		return pool.modCount == 0 && pool.superPool == parent && pool.fallback == fallback;
+	}
+
+	/** A linked pool identity, with the switch points of the pools it depends on. */
+	private static class Link {
+		final MethodHandle test;
+		final MethodHandle target;
+		final SwitchPoint[] guards;
+
+		Link(MethodHandle test, MethodHandle target, SwitchPoint[] guards) {
+			this.test = test;
+			this.target = target;
+			this.guards = guards;
+		}
+
+		boolean isInvalidated() {
+			for (SwitchPoint sp : guards) {
+				if (sp.hasBeenInvalidated()) return true;
+			}
+			return false;
+		}
+
+		MethodHandle guard(MethodHandle handle, MethodHandle fallback) {
+			for (SwitchPoint sp : guards) {
+				handle = sp.guardWithTest(handle, fallback);
+			}
+			return handle;
+		}
+	}
+}
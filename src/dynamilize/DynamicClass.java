@@ -9,7 +9,8 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The dynamic type that stores dynamic object behavior information describes the shared behavior and
@@ -64,7 +65,7 @@ public class DynamicClass {
 	 * actively deleted. For obsolete classes, please remember to use {@link DynamicClass#delete()} to delete them, otherwise
 	 * it may cause memory leaks.
 	 */
-	private static final HashMap<String, DynamicClass> classPool = new HashMap<>();
+	private static final ConcurrentHashMap<String, DynamicClass> classPool = new ConcurrentHashMap<>();
 
 	/** Unique qualified name of type. */
 	private final String name;
@@ -87,11 +88,10 @@ public class DynamicClass {
 	 * @throws IllegalHandleException If a type with that name already exists
 	 */
 	public static DynamicClass declare(String name, DynamicClass superDyClass) {
-		if (classPool.containsKey(name))
+		DynamicClass dyc = new DynamicClass(name, superDyClass);
+		if (classPool.putIfAbsent(name, dyc) != null)
 			throw new IllegalHandleException("cannot declare two dynamic class with same name");
 
-		DynamicClass dyc = new DynamicClass(name, superDyClass);
-		classPool.put(name, dyc);
 		return dyc;
 	}
 
@@ -120,6 +120,7 @@ public class DynamicClass {
 		this.name = name;
 		this.superDyClass = superDyClass;
 		this.data = new DataPool(superDyClass == null ? null : superDyClass.data);
+		this.data.owner = name;
 	}
 
 	/**
@@ -130,7 +131,7 @@ public class DynamicClass {
 	public void delete() {
 		checkFinalized();
 
-		classPool.remove(name);
+		classPool.remove(name, this);
 		isObsoleted = true;
 	}
 
@@ -158,29 +159,18 @@ public class DynamicClass {
 	}
 
 	public DataPool genPool(DataPool basePool) {
-		return new DataPool(data) {
-			@Override
-			public IFunctionEntry select(String name1, FunctionType type) {
-				IFunctionEntry res1 = super.select(name1, type);
-				if (res1 != null) return res1;
-
-				return basePool.select(name1, type);
-			}
-
-			@Override
-			public IVariable getVariable(String name1) {
-				IVariable var = super.getVariable(name1);
-				if (var != null) return var;
-
-				return basePool.getVariable(name1);
-			}
-		};
+		return new DataPool(data, basePool);
 	}
 
 	public IFunctionEntry[] getFunctions() {
 		return data.getFunctions();
 	}
 
+	/** Get the names of the functions declared by this dynamic class and its super classes, the returned set must not be modified. */
+	Set<String> functionNames() {
+		return data.functionNames();
+	}
+
 	public IVariable[] getVariables() {
 		return data.getVariables();
 	}
@@ -327,6 +317,19 @@ public class DynamicClass {
 		data.setVariable(new Variable(name, new Initializer<>(prov)));
 	}
 
+	/**
+	 * Set the variable with a declared type, if the type is primitive, the values of the variable are stored
+	 * without boxing (see {@link PrimitiveVariable}), and only the values that can be converted to the type can be
+	 * assigned to it.
+	 *
+	 * @param name variable name
+	 * @param type The declared type of the variable
+	 * @param prov Factory function for initial values of production variables
+	 */
+	public void setVariable(String name, Class<?> type, Initializer.Producer<?> prov) {
+		data.setVariable(Variable.of(name, new Initializer<>(prov, type)));
+	}
+
 	private void setFunctionWithMethod(JavaHandleHelper helper, Method method) {
 		if (!Modifier.isStatic(method.getModifiers()))
 			throw new IllegalHandleException("cannot assign a non-static method to function");
@@ -368,16 +371,14 @@ public class DynamicClass {
 
 			if (thisP) realArgArr[0] = self;
 
-			DataPool.ReadOnlyPool superPool = null;
-			if (thisP && superP) realArgArr[1] = data.getSuper(self, superPool = self.baseSuperPointer());
-			else if (!thisP && superP) realArgArr[0] = data.getSuper(self, superPool = self.baseSuperPointer());
+			if (thisP && superP) realArgArr[1] = data.getSuper(self, self.baseSuperPointer());
+			else if (!thisP && superP) realArgArr[0] = data.getSuper(self, self.baseSuperPointer());
 
 			if (argsArray.length != 0) System.arraycopy(argsArray, 0, realArgArr, offset, argsArray.length);
 
 			try {
 				Object res = v.invoke(self, type, realArgArr);
 				ArgumentList.recycleList(realArgArr);
-				if (superPool != null) superPool.recycle();
 				return res;
 			} catch (Throwable e) {
 				throw new RuntimeException(e);
@@ -394,13 +395,13 @@ public class DynamicClass {
 			throw new RuntimeException(e);
 		}
 
-		data.setVariable(new Variable(field.getName(), new Initializer<>(value instanceof Initializer.Producer ? (Initializer.Producer<? super Object>) value : () -> {
+		data.setVariable(Variable.of(field.getName(), value instanceof Initializer.Producer ? new Initializer<>((Initializer.Producer<? super Object>) value) : new Initializer<>(() -> {
 			try {
 				return field.get(null);
 			} catch (IllegalAccessException e) {
 				throw new RuntimeException(e);
 			}
-		})));
+		}, field.getType())));
 	}
 
 	private void checkFinalized() {
@@ -1,13 +1,18 @@
 package dynamilize;
 
 import dynamilize.classmaker.ASMGenerator;
+import dynamilize.classmaker.AbstractClassGenerator;
 import dynamilize.classmaker.AnnotationDef;
+import dynamilize.classmaker.ByteClassLoader;
+import dynamilize.classmaker.BytecodeCache;
 import dynamilize.classmaker.ClassInfo;
 import dynamilize.classmaker.CodeBlock;
 import dynamilize.classmaker.FieldInfo;
+import dynamilize.classmaker.GenerationObserver;
 import dynamilize.classmaker.MethodInfo;
 import dynamilize.classmaker.ParameterInfo;
 import dynamilize.classmaker.code.IClass;
+import dynamilize.classmaker.code.ICondition;
 import dynamilize.classmaker.code.ILocal;
 import dynamilize.classmaker.code.IMethod;
 import dynamilize.classmaker.code.IOperate;
@@ -22,6 +27,12 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaConversionException;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -34,10 +45,18 @@ import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.Stack;
+import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.FutureTask;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 
 import static dynamilize.classmaker.ClassInfo.CLASS_TYPE;
@@ -62,6 +81,13 @@ import static dynamilize.runtimeannos.FuzzyMatch.Exact.INSTANCE;
  * </ul>
  * When implementing, the basic implementation must be provided according to the method description,
  * and the original minimum context request should not be changed.
+ * <p>The caches of a factory are concurrent, the instances can be created from multiple threads without external
+ * locking. A dynamic type is generated only once, the other threads requiring the same type wait for the thread
+ * generating it, while the different types may be generated concurrently, so the implementation of
+ * {@link DynamicMaker#generateClass(Class, Class[], Class[])} should be thread-safe. A type required again by the thread
+ * generating it fails with an {@link IllegalHandleException}, rather than waiting for itself. The options (such as the
+ * {@linkplain DynamicMaker#setDispatchMode(DispatchMode) dispatch mode}) may be changed while classes are being generated,
+ * each generation keeps using the options it was started with, and its class is not cached if the options changed meanwhile.
  * <pre>
  * For usage instructions, please refer to:
  *   {@link DynamicClass}
@@ -81,6 +107,8 @@ import static dynamilize.runtimeannos.FuzzyMatch.Exact.INSTANCE;
 @SuppressWarnings("rawtypes")
 public abstract class DynamicMaker {
 	public static final String CALLSUPER = "$super";
+	/** The name prefix of the generated methods that call the super implementation of a dynamic method directly. */
+	public static final String SUPER_BRIDGE = "$super$";
 
 	private static final HashSet<String> INTERNAL_FIELD = new HashSet<>(Arrays.asList(
 			"$dynamic_type$",
@@ -88,6 +116,27 @@ public abstract class DynamicMaker {
 			"$varValuePool$",
 			"$superbasepointer$"
 	));
+	/** The runtime classes that the generated classes link against, the cached bytecode is outdated when any of them changes. */
+	private static final List<Class<?>> LINKED_CLASSES = List.of(
+			DynamicClass.class,
+			DynamicObject.class,
+			SuperInvoker.class,
+			DataPool.class,
+			DataPool.ReadOnlyPool.class,
+			FunctionType.class,
+			Function.class,
+			Function.SuperGetFunction.class,
+			FixedFunction.class,
+			PrimitiveFunction.class,
+			IFunctionEntry.class,
+			IVariable.class,
+			ArgumentList.class,
+			InlineCache.class,
+			DynamicCallSite.class,
+			FieldLayout.class,
+			Shape.class,
+			Shape.Holder.class
+	);
 
 	public static final ClassInfo<DynamicClass> DYNAMIC_CLASS_TYPE = asType(DynamicClass.class);
 	public static final ClassInfo<DynamicObject> DYNAMIC_OBJECT_TYPE = asType(DynamicObject.class);
@@ -106,6 +155,15 @@ public abstract class DynamicMaker {
 	public static final ClassInfo<ArgumentList> ARG_LIST_TYPE = asType(ArgumentList.class);
 	public static final ClassInfo<Function.SuperGetFunction> SUPER_GET_FUNC_TYPE = ClassInfo.asType(Function.SuperGetFunction.class);
 	public static final ClassInfo<IFunctionEntry> FUNC_ENTRY_TYPE = ClassInfo.asType(IFunctionEntry.class);
+	public static final ClassInfo<InlineCache> INLINE_CACHE_TYPE = ClassInfo.asType(InlineCache.class);
+	public static final ClassInfo<DynamicCallSite> DYNAMIC_CALL_SITE_TYPE = ClassInfo.asType(DynamicCallSite.class);
+	public static final ClassInfo<CallSite> CALL_SITE_TYPE = ClassInfo.asType(CallSite.class);
+	public static final ClassInfo<MethodHandles.Lookup> LOOKUP_TYPE = ClassInfo.asType(MethodHandles.Lookup.class);
+	public static final ClassInfo<MethodType> METHOD_TYPE_TYPE = ClassInfo.asType(MethodType.class);
+	public static final ClassInfo<FieldLayout> FIELD_LAYOUT_TYPE = ClassInfo.asType(FieldLayout.class);
+	public static final ClassInfo<Shape> SHAPE_TYPE = ClassInfo.asType(Shape.class);
+	public static final ClassInfo<Shape.Holder> SHAPE_HOLDER_TYPE = ClassInfo.asType(Shape.Holder.class);
+	public static final ClassInfo<long[]> LONG_ARRAY_TYPE = ClassInfo.asType(long[].class);
 
 	public static final IMethod<DataPool, DataPool.ReadOnlyPool> GET_READER = DATA_POOL_TYPE.getMethod(READONLY_POOL_TYPE, "getReader", DYNAMIC_OBJECT_TYPE);
 	public static final IMethod<HashMap, Object> MAP_GET = HASH_MAP_TYPE.getMethod(OBJECT_TYPE, "get", OBJECT_TYPE);
@@ -121,24 +179,74 @@ public abstract class DynamicMaker {
 	public static final IMethod<DynamicObject, Object> INVOKE = DYNAMIC_OBJECT_TYPE.getMethod(OBJECT_TYPE, "invokeFunc", FUNCTION_TYPE_TYPE, STRING_TYPE, OBJECT_TYPE.asArray());
 	public static final IMethod<ArgumentList, Object[]> GET_LIST = ARG_LIST_TYPE.getMethod(OBJECT_TYPE.asArray(), "getList", INT_TYPE);
 	public static final IMethod<ArgumentList, Void> RECYCLE_LIST = ARG_LIST_TYPE.getMethod(VOID_TYPE, "recycleList", OBJECT_TYPE.asArray());
+	public static final IMethod<ArgumentList, Object[]> ARG_LIST_ARGS = ARG_LIST_TYPE.getMethod(OBJECT_TYPE.asArray(), "args");
+	public static final IMethod<InlineCache, Void> CACHE_CONSTRUCTOR = INLINE_CACHE_TYPE.getConstructor(STRING_TYPE, FUNCTION_TYPE_TYPE);
+	public static final IMethod<InlineCache, Object> CACHE_INVOKE = INLINE_CACHE_TYPE.getMethod(OBJECT_TYPE, "invoke", DYNAMIC_OBJECT_TYPE, DATA_POOL_TYPE, OBJECT_TYPE.asArray());
+	public static final IMethod<FieldLayout, Object> LAYOUT_GET = FIELD_LAYOUT_TYPE.getMethod(OBJECT_TYPE, "get", DYNAMIC_OBJECT_TYPE, STRING_TYPE);
+	public static final IMethod<FieldLayout, Void> LAYOUT_SET = FIELD_LAYOUT_TYPE.getMethod(VOID_TYPE, "set", DYNAMIC_OBJECT_TYPE, STRING_TYPE, OBJECT_TYPE);
+	public static final IMethod<Shape, Object> SHAPE_GET = SHAPE_TYPE.getMethod(OBJECT_TYPE, "get", SHAPE_HOLDER_TYPE, STRING_TYPE);
+	public static final IMethod<Shape, Void> SHAPE_SET = SHAPE_TYPE.getMethod(VOID_TYPE, "set", SHAPE_HOLDER_TYPE, STRING_TYPE, OBJECT_TYPE);
+	public static final IMethod<Shape, Object[]> SHAPE_EMPTY_SLOTS = SHAPE_TYPE.getMethod(OBJECT_TYPE.asArray(), "emptySlots");
+	public static final IMethod<Shape, long[]> SHAPE_EMPTY_BANK = SHAPE_TYPE.getMethod(LONG_ARRAY_TYPE, "emptyBank");
+	public static final IMethod<DynamicCallSite, CallSite> CALL_SITE_BOOTSTRAP = DYNAMIC_CALL_SITE_TYPE.getMethod(CALL_SITE_TYPE, "bootstrap", LOOKUP_TYPE, STRING_TYPE, METHOD_TYPE_TYPE, STRING_TYPE);
+	public static final IMethod<DynamicCallSite, CallSite> CALL_SITE_BOOTSTRAP_FIXED = DYNAMIC_CALL_SITE_TYPE.getMethod(CALL_SITE_TYPE, "bootstrapFixed", LOOKUP_TYPE, STRING_TYPE, METHOD_TYPE_TYPE, STRING_TYPE);
+	public static final IMethod<DynamicCallSite, CallSite> CALL_SITE_BOOTSTRAP_TYPED = DYNAMIC_CALL_SITE_TYPE.getMethod(CALL_SITE_TYPE, "bootstrapTyped", LOOKUP_TYPE, STRING_TYPE, METHOD_TYPE_TYPE, STRING_TYPE);
+	public static final IMethod<InlineCache, IFunctionEntry> CACHE_SELECT = INLINE_CACHE_TYPE.getMethod(FUNC_ENTRY_TYPE, "select", DATA_POOL_TYPE);
+	public static final IMethod<IFunctionEntry, Function> ENTRY_GET_FUNC = FUNC_ENTRY_TYPE.getMethod(FUNCTION_TYPE, "getFunc");
+	/** The fixed-arity {@code call} methods of {@link InlineCache}, indexed by the count of arguments. */
+	@SuppressWarnings("unchecked")
+	public static final IMethod<InlineCache, Object>[] CACHE_CALLS = new IMethod[FixedFunction.MAX_ARITY + 1];
+
+	static {
+		for (int i = 0; i < CACHE_CALLS.length; i++) {
+			IClass<?>[] args = new IClass[i + 2];
+			args[0] = DYNAMIC_OBJECT_TYPE;
+			args[1] = DATA_POOL_TYPE;
+			Arrays.fill(args, 2, args.length, OBJECT_TYPE);
+
+			CACHE_CALLS[i] = INLINE_CACHE_TYPE.getMethod(OBJECT_TYPE, "call", args);
+		}
+	}
 
-	private static final Map<String, Set<FunctionType>> OVERRIDES = new HashMap<>();
-	private static final Map<String, Set<FunctionType>> FINALS = new HashMap<>();
-	private static final Map<String, Set<FunctionType>> ABSTRACTS = new HashMap<>();
-	private static final Set<Class<?>> INTERFACE_TEMP = new HashSet<>();
-	private static final Stack<Class<?>> INTERFACE_STACK = new Stack<>();
 	private static final Class[] EMPTY_CLASSES = new Class[0];
+	private static final MethodHandle GEN_POOL;
+
+	static {
+		try {
+			GEN_POOL = MethodHandles.lookup().findVirtual(DynamicClass.class, "genPool", MethodType.methodType(DataPool.class, DataPool.class));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
 	public static final ILocal[] LOCALS_EMP = new ILocal[0];
 	public static final HashSet EMP_SET = new HashSet<>();
 	public static final HashMap EMP_MAP = new HashMap<>();
 	public static final String ANY = "ANY";
 	private final JavaHandleHelper helper;
 
-	private final HashMap<ClassImplements<?>, Class<?>> classPool = new HashMap<>();
-	private final HashMap<Class<?>, DataPool> classPoolsMap = new HashMap<>();
-	private final HashMap<Class<?>, HashMap<FunctionType, Constructor<?>>> constructors = new HashMap<>();
+	private final ConcurrentHashMap<ClassImplements<?>, Class<?>> classPool = new ConcurrentHashMap<>();
+	/** The types being generated, the threads requiring a type in it wait for the generating thread instead of generating it again. */
+	private final ConcurrentHashMap<ClassImplements<?>, Generation> generating = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<Class<?>, DataPool> classPoolsMap = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<Class<?>, ConcurrentHashMap<FunctionType, Constructor<?>>> constructors = new ConcurrentHashMap<>();
 
-	private final HashMap<Class<?>, DataPool> wrapClassPoolMap = new HashMap<>();
+	private final ConcurrentHashMap<Class<?>, DataPool> wrapClassPoolMap = new ConcurrentHashMap<>();
+
+	/**
+	 * The options of the generated classes, it is replaced as a whole when the options change or the caches are cleared,
+	 * a generation uses the snapshot taken when it started, and its class is only put into the pool if the snapshot is still current.
+	 */
+	private volatile Settings settings = new Settings(DispatchMode.INLINE_CACHE, VariableLayout.HASH_MAP, StubGeneration.ALL, null);
+	private final GenerationMetrics metrics = new GenerationMetrics();
+
+	/** The options snapshot of the class being generated on current thread. */
+	private final ThreadLocal<Settings> settingsTarget = new ThreadLocal<>();
+
+	/** The dynamic class that the class being generated on current thread is specialized for, see {@link VariableLayout#FIELDS}. */
+	private final ThreadLocal<DynamicClass> layoutTarget = new ThreadLocal<>();
+	/** The names of the methods overridden by the class being generated on current thread, see {@link StubGeneration#DECLARED}. */
+	private final ThreadLocal<Set<String>> stubTarget = new ThreadLocal<>();
 
 	/**
 	 * Create an instance and pass in the {@linkplain JavaHandleHelper Java Behavior Supporter} it wants to use. Subclass references this
@@ -148,8 +256,106 @@ public abstract class DynamicMaker {
 		this.helper = helper;
 	}
 
+	/** Get the {@linkplain DispatchMode dispatch mode} used by the dynamic methods generated by this factory. */
+	public DispatchMode getDispatchMode() {
+		return settings.dispatchMode;
+	}
+
+	/**
+	 * Set the {@linkplain DispatchMode dispatch mode} used by the dynamic methods generated by this factory. The mode is
+	 * baked into the generated classes, so all cached classes will be {@linkplain DynamicMaker#clearAllCache() cleared}
+	 * if the mode is changed, it is recommended to set the mode before any class is generated.
+	 */
+	public void setDispatchMode(DispatchMode mode) {
+		synchronized (classPool) {
+			Settings curr = settings;
+			if (mode == curr.dispatchMode) return;
+
+			settings = new Settings(mode, curr.variableLayout, curr.stubGeneration, curr.bytecodeCache);
+			clearAllCache();
+		}
+	}
+
+	/** Get the {@linkplain VariableLayout variable layout} of the dynamic classes generated by this factory. */
+	public VariableLayout getVariableLayout() {
+		return settings.variableLayout;
+	}
+
+	/**
+	 * Set the {@linkplain VariableLayout variable layout} of the dynamic classes generated by this factory. Like the
+	 * dispatch mode, all cached classes will be {@linkplain DynamicMaker#clearAllCache() cleared} if the layout is changed.
+	 */
+	public void setVariableLayout(VariableLayout layout) {
+		synchronized (classPool) {
+			Settings curr = settings;
+			if (layout == curr.variableLayout) return;
+
+			settings = new Settings(curr.dispatchMode, layout, curr.stubGeneration, curr.bytecodeCache);
+			clearAllCache();
+		}
+	}
+
+	/** Get the {@linkplain StubGeneration stub generation} of the dynamic classes generated by this factory. */
+	public StubGeneration getStubGeneration() {
+		return settings.stubGeneration;
+	}
+
+	/**
+	 * Set the {@linkplain StubGeneration stub generation} of the dynamic classes generated by this factory. Like the
+	 * dispatch mode, all cached classes will be {@linkplain DynamicMaker#clearAllCache() cleared} if it is changed.
+	 */
+	public void setStubGeneration(StubGeneration generation) {
+		synchronized (classPool) {
+			Settings curr = settings;
+			if (generation == curr.stubGeneration) return;
+
+			settings = new Settings(curr.dispatchMode, curr.variableLayout, generation, curr.bytecodeCache);
+			clearAllCache();
+		}
+	}
+
+	/** Get the {@linkplain BytecodeCache bytecode cache} used by this factory, or null if the generated classes are not cached. */
+	public BytecodeCache getBytecodeCache() {
+		return settings.bytecodeCache;
+	}
+
+	/**
+	 * Set the {@linkplain BytecodeCache bytecode cache} used by this factory, the bytecode of the generated classes will be
+	 * stored in it and loaded in the next run, instead of being generated again. The generator used by
+	 * {@link DynamicMaker#generateClass(Class, Class[], Class[])} should declare its classes to the cache, otherwise no class can be stored.
+	 * <p>The key of a class is hashed from the bytecode of the base class, the interfaces, the aspects, this factory and
+	 * all of their super types, with the dispatch mode and the variable layout. The classes specialized for a dynamic class
+	 * in the {@link VariableLayout#FIELDS} mode are not cached.
+	 *
+	 * @param cache The cache, or null to disable the cache
+	 */
+	public void setBytecodeCache(BytecodeCache cache) {
+		synchronized (classPool) {
+			Settings curr = settings;
+			settings = new Settings(curr.dispatchMode, curr.variableLayout, curr.stubGeneration, cache);
+		}
+	}
+
+	/**
+	 * Get the {@linkplain GenerationMetrics metrics} of the dynamic types obtained by this factory, it records the cache hits
+	 * and the cost of each type that is generated, pre-generated or loaded from the bytecode cache.
+	 */
+	public GenerationMetrics getMetrics() {
+		return metrics;
+	}
+
+	/**
+	 * Clear all cached classes and pools of this factory. The generations running at this time are detached, the threads
+	 * waiting for them still get their classes, but the classes are not put into the pool, the later requests generate the
+	 * classes again.
+	 */
 	public void clearAllCache() {
-		classPool.clear();
+		synchronized (classPool) {
+			Settings curr = settings;
+			settings = new Settings(curr.dispatchMode, curr.variableLayout, curr.stubGeneration, curr.bytecodeCache);
+			classPool.clear();
+			generating.clear();
+		}
 		classPoolsMap.clear();
 		constructors.clear();
 		wrapClassPoolMap.clear();
@@ -173,6 +379,7 @@ public abstract class DynamicMaker {
 			DataPool fr = res;
 			res = wrapClassPoolMap.computeIfAbsent(clazz, c -> {
 				DataPool r = new DataPool(fr);
+				r.owner = clazz.getName();
 
 				for (Method method : clazz.getDeclaredMethods()) {
 					if (Modifier.isStatic(method.getModifiers())) continue;
@@ -272,7 +479,7 @@ public abstract class DynamicMaker {
 	public <T> DynamicObject<T> newInstance(Class<T> base, Class<?>[] interfaces, Class<?>[] aspects, DynamicClass dynamicClass, Object... args) {
 		checkBase(base);
 
-		Class<? extends T> clazz = getDynamicBase(base, interfaces, aspects);
+		Class<? extends T> clazz = getDynamicBase(base, interfaces, aspects, dynamicClass);
 		try {
 			List<Object> argsLis = new ArrayList<>(Arrays.asList(
 					dynamicClass,
@@ -288,27 +495,89 @@ public abstract class DynamicMaker {
 					cstr = constructor;
 					break;
 				}
-				t.recycle();
 			}
 			if (cstr == null)
 				throw new NoSuchMethodError("no matched constructor found with parameter " + Arrays.toString(args));
 
 			FunctionType type = FunctionType.inst(cstr.getParameterTypes());
 			Constructor c = cstr;
-			DynamicObject<T> inst = (DynamicObject<T>) constructors.computeIfAbsent(clazz, e -> new HashMap<>())
+			DynamicObject<T> inst = (DynamicObject<T>) constructors.computeIfAbsent(clazz, e -> new ConcurrentHashMap<>())
 					.computeIfAbsent(type, t -> {
 						helper.makeAccess(c);
 						return c;
 					}).newInstance(argsLis.toArray());
 
-			type.recycle();
-
 			return inst;
 		} catch (Throwable e) {
 			throw new IllegalHandleException(e);
 		}
 	}
 
+	/**
+	 * Get a precompiled factory of the instances of a fully delegated dynamic class without additional interfaces.
+	 *
+	 * @see DynamicMaker#getFactory(Class, Class[], Class[], DynamicClass, Class[])
+	 */
+	public <T> InstanceFactory<T> getFactory(Class<T> base, DynamicClass dynamicClass, Class<?>... argTypes) {
+		return getFactory(base, EMPTY_CLASSES, null, dynamicClass, argTypes);
+	}
+
+	/**
+	 * Get a precompiled factory of the instances of a dynamic class, the dynamic type is generated and the constructor
+	 * matching the argument types is resolved once here, the factory creates the instances same as
+	 * {@link DynamicMaker#newInstance(Class, Class[], Class[], DynamicClass, Object...)} with the same parameters, but
+	 * calls the constructor directly through a method handle.
+	 *
+	 * @param base         The Java type that executes the delegation
+	 * @param interfaces   List of interfaces implemented by instances
+	 * @param aspects      List of sectional interfaces
+	 * @param dynamicClass Dynamic types used for instantiation
+	 * @param argTypes     The types of the constructor arguments, the primitive types and their wrappers are both accepted
+	 * @return The factory of the instances
+	 * @throws IllegalHandleException If no constructor matches the argument types
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> InstanceFactory<T> getFactory(Class<T> base, Class<?>[] interfaces, Class<?>[] aspects, DynamicClass dynamicClass, Class<?>... argTypes) {
+		checkBase(base);
+
+		Class<? extends T> clazz = getDynamicBase(base, interfaces, aspects, dynamicClass);
+		genPool(clazz, dynamicClass);
+		DataPool basePool = classPoolsMap.get(clazz);
+
+		Class<?>[] lookupTypes = new Class[argTypes.length + 3];
+		lookupTypes[0] = DynamicClass.class;
+		lookupTypes[1] = DataPool.class;
+		lookupTypes[2] = DataPool.class;
+		for (int i = 0; i < argTypes.length; i++) {
+			lookupTypes[i + 3] = FunctionType.unwrapped(argTypes[i]);
+		}
+
+		Constructor<?> cstr = null;
+		for (Constructor<?> constructor : clazz.getDeclaredConstructors()) {
+			if (FunctionType.from(constructor).match(lookupTypes)) {
+				cstr = constructor;
+				break;
+			}
+		}
+		if (cstr == null)
+			throw new IllegalHandleException("no matched constructor found with parameter types " + Arrays.toString(argTypes));
+
+		try {
+			helper.makeAccess(cstr);
+
+			// (DynamicClass, DataPool, DataPool, args...) -> (args...), the data pool of each instance is generated by the bound dynamic class
+			MethodHandle handle = MethodHandles.lookup().unreflectConstructor(cstr);
+			handle = MethodHandles.insertArguments(handle, 2, basePool);
+			handle = MethodHandles.insertArguments(handle, 0, dynamicClass);
+			handle = MethodHandles.foldArguments(handle, MethodHandles.insertArguments(GEN_POOL, 0, dynamicClass, basePool));
+			handle = handle.asSpreader(Object[].class, argTypes.length).asType(MethodType.methodType(DynamicObject.class, Object[].class));
+
+			return new InstanceFactory<>(clazz, dynamicClass, argTypes.clone(), handle);
+		} catch (IllegalAccessException e) {
+			throw new IllegalHandleException(e);
+		}
+	}
+
 	/**
 	 * Get the {@linkplain JavaHandleHelper Java Behavior Supporter} for this maker
 	 */
@@ -358,24 +627,46 @@ public abstract class DynamicMaker {
 				}
 			};
 
+			res.owner = clazz.getName();
+
+			// the signatures of the methods that can be called by the functions, the methods not overridden in DECLARED stub generation are referenced directly
+			HashSet<String> callable = new HashSet<>();
 			Class<?> curr = clazz;
 			while (curr != null) {
 				if (curr.getAnnotation(DynamicType.class) != null) {
+					HashSet<String> bridges = new HashSet<>();
+					for (Method method : curr.getDeclaredMethods()) {
+						if (method.getName().startsWith(SUPER_BRIDGE)) bridges.add(method.getName());
+					}
+
 					for (Method method : curr.getDeclaredMethods()) {
 						DynamicMethod callSuper = method.getAnnotation(DynamicMethod.class);
 						if (callSuper != null) {
-							String signature = FunctionType.signature(method.getName(), method.getParameterTypes());
-							res.setFunction(
-									method.getName(),
-									(self, args) -> ((SuperInvoker) self).invokeSuper(signature, args.args()),
-									method.getParameterTypes()
-							);
+							String bridge = SUPER_BRIDGE + method.getName() + "$" + FunctionType.typeNameHash(method.getParameterTypes());
+							Function<?, ?> superFunction = bridges.contains(bridge) ? superBridge(curr, bridge) : null;
+							if (superFunction == null) {
+								String signature = FunctionType.signature(method.getName(), method.getParameterTypes());
+								superFunction = (self, args) -> ((SuperInvoker) self).invokeSuper(signature, args.args());
+							}
+
+							res.setFunction(method.getName(), superFunction, method.getParameterTypes());
+							callable.add(FunctionType.signature(method));
 						}
 					}
 					curr = curr.getSuperclass();
 					continue;
 				}
 
+				if (settings().stubGeneration == StubGeneration.DECLARED) {
+					for (Method method : curr.getDeclaredMethods()) {
+						int mod = method.getModifiers();
+						if (Modifier.isStatic(mod) || Modifier.isPrivate(mod) || method.isSynthetic() || !isReferable(method)) continue;
+						if (!callable.add(FunctionType.signature(method))) continue;
+
+						res.setFunction(new LazyMethodEntry(helper, method));
+					}
+				}
+
 				for (Field field : curr.getDeclaredFields()) {
 					if (Modifier.isStatic(field.getModifiers()) || isInternalField(field.getName())) continue;
 
@@ -392,6 +683,69 @@ public abstract class DynamicMaker {
 		return dynamicClass.genPool(basePool);
 	}
 
+	/**
+	 * Create the function calling a generated super bridge directly, the call is dispatched virtually, so the bridge
+	 * overridden by a dynamic type derived from another dynamic type is called on its instances.
+	 *
+	 * @return The function, or null if the bridge cannot be accessed
+	 * @throws IllegalHandleException If the function cannot be created from the accessible bridge
+	 */
+	private static Function<?, ?> superBridge(Class<?> type, String bridge) {
+		try {
+			// the function class is defined in the loader of the generated type, so it is able to resolve the type
+			MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+			MethodHandle target = lookup.findVirtual(type, bridge, MethodType.methodType(Object.class, ArgumentList.class));
+
+			if (type.isHidden()) {
+				// the class spun by the metafactory cannot name a hidden class, call the bridge through the handle instead
+				MethodHandle handle = target.asType(MethodType.methodType(Object.class, DynamicObject.class, ArgumentList.class));
+				return (self, args) -> {
+					try {
+						return (Object) handle.invokeExact((DynamicObject<?>) self, args);
+					} catch (RuntimeException | Error e) {
+						throw e;
+					} catch (Throwable e) {
+						throw new IllegalHandleException(e);
+					}
+				};
+			}
+
+			return (Function<?, ?>) LambdaMetafactory.metafactory(
+					lookup,
+					"invoke",
+					MethodType.methodType(Function.class),
+					MethodType.methodType(Object.class, DynamicObject.class, ArgumentList.class),
+					target,
+					MethodType.methodType(Object.class, type, ArgumentList.class)
+			).getTarget().invoke();
+		} catch (ReflectiveOperationException | LambdaConversionException e) {
+			return null;
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalHandleException(e);
+		}
+	}
+
+	/**
+	 * Whether the method can be referenced by the handle helper, that is the package of the method is open to the
+	 * helper, or the method is a public member of an exported package. The protected methods of the platform classes
+	 * (such as {@link Object#clone()}) cannot be accessed without opening the package from the command line.
+	 */
+	private boolean isReferable(Method method) {
+		Class<?> owner = method.getDeclaringClass();
+		Module module = owner.getModule(), target = helper.getClass().getModule();
+		String pack = owner.getPackageName();
+
+		if (module.isOpen(pack, target)) return true;
+		return Modifier.isPublic(method.getModifiers()) && Modifier.isPublic(owner.getModifiers()) && module.isExported(pack, target);
+	}
+
+	private static void classInfoBuilt(ClassInfo<?> classInfo, long start) {
+		GenerationObserver observer = AbstractClassGenerator.observer();
+		if (observer != null) observer.classInfoBuilt(classInfo, System.nanoTime() - start);
+	}
+
 	private static boolean isInternalField(String name) {
 		return INTERNAL_FIELD.contains(name);
 	}
@@ -404,18 +758,264 @@ public abstract class DynamicMaker {
 	 * @param base       Delegate base class
 	 * @param interfaces List of interfaces that need to be implemented
 	 */
-	@SuppressWarnings("unchecked")
 	protected <T> Class<? extends T> getDynamicBase(Class<T> base, Class<?>[] interfaces, Class<?>[] aspects) {
-		return (Class<? extends T>) classPool.computeIfAbsent(new ClassImplements<>(base, interfaces, aspects), e -> {
-			Class<?> c = base;
+		return getDynamicBase(base, interfaces, aspects, null);
+	}
+
+	/**
+	 * Obtain the type of the generated dynamic type instance for the given dynamic class. In the
+	 * {@link VariableLayout#FIELDS} mode, the generated type is specialized for the dynamic class, and in the
+	 * {@link StubGeneration#DECLARED} mode, the generated type is shared by the dynamic classes declaring the same function
+	 * names, otherwise the result is same as {@link DynamicMaker#getDynamicBase(Class, Class[], Class[])}.
+	 * <p>If a class {@linkplain AotGenerator pre-generated} for the same configuration can be found, it is used directly.
+	 * <p>Only one thread generates a type, if the type is being generated by another thread, this method waits for it.
+	 *
+	 * @param base         Delegate base class
+	 * @param interfaces   List of interfaces that need to be implemented
+	 * @param dynamicClass The dynamic class of the instances, can be null
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T> Class<? extends T> getDynamicBase(Class<T> base, Class<?>[] interfaces, Class<?>[] aspects, DynamicClass dynamicClass) {
+		Settings options = settings;
+		DynamicClass layout = options.variableLayout == VariableLayout.FIELDS ? dynamicClass : null;
+		Set<String> stubs = options.stubGeneration == StubGeneration.DECLARED && dynamicClass != null ? dynamicClass.functionNames() : null;
+		ClassImplements<?> key = new ClassImplements<>(base, interfaces, aspects, layout, stubs);
+
+		Class<?> res = classPool.get(key);
+		if (res != null) {
+			metrics.hit();
+			return (Class<? extends T>) res;
+		}
+
+		Generation task = new Generation(options, () -> {
+			// the type may be put into the pool after the check above and before the task is registered
+			Class<?> existed = classPool.get(key);
+			if (existed != null) {
+				metrics.hit();
+				return existed;
+			}
+
+			Set<String> names = stubs == null ? null : Set.copyOf(stubs);
+			Class<?> generated = makeDynamicBase(base, interfaces, aspects, layout, names, options);
+			return publish(options, new ClassImplements<>(base, interfaces, aspects, layout, names), generated);
+		});
+
+		Generation running = generating.putIfAbsent(key, task);
+		try {
+			if (running == null || running.options != options) {
+				// a generation started with outdated options is not waited for
+				running = task;
+				task.run();
+			} else if (running.owner == Thread.currentThread()) {
+				// waiting for the task would never return, the type is required again while generating itself
+				throw new IllegalHandleException("recursive generation of the dynamic type of " + base.getName());
+			}
+
+			return (Class<? extends T>) running.get();
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException r) throw r;
+			if (e.getCause() instanceof Error r) throw r;
+			throw new IllegalHandleException(e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalHandleException(e);
+		} finally {
+			if (running == task) generating.remove(key, task);
+		}
+	}
+
+	private Class<?> makeDynamicBase(Class<?> base, Class<?>[] interfaces, Class<?>[] aspects, DynamicClass layout, Set<String> stubs, Settings options) {
+		Class<?> c = base;
+
+		while (c != null) {
+			helper.makeAccess(c);
+			c = c.getSuperclass();
+		}
+
+		DynamicClass last = layoutTarget.get();
+		Set<String> lastStubs = stubTarget.get();
+		Settings lastOptions = settingsTarget.get();
+		layoutTarget.set(layout);
+		stubTarget.set(stubs);
+		settingsTarget.set(options);
+		GenerationMetrics.Recording recording = metrics.begin(base);
+		GenerationObserver lastObserver = AbstractClassGenerator.observe(recording);
+		try {
+			Class<?> handled = handleBaseClass(base);
+			Class<?> pregenerated = layout == null && stubs == null ? findPregenerated(handled, interfaces, aspects) : null;
+			if (pregenerated != null) {
+				recording.finish(pregenerated, GenerationStats.Source.PREGENERATED);
+				return pregenerated;
+			}
+
+			String key = options.bytecodeCache == null || layout != null ? null : cacheKey(base, handled, interfaces, aspects, stubs);
+
+			Class<?> res = key == null ? generateClass(handled, interfaces, aspects) : options.bytecodeCache.get(key, () -> generateClass(handled, interfaces, aspects));
+			recording.finish(res);
+
+			return res;
+		} finally {
+			layoutTarget.set(last);
+			stubTarget.set(lastStubs);
+			settingsTarget.set(lastOptions);
+			AbstractClassGenerator.observe(lastObserver);
+		}
+	}
+
+	/**
+	 * Generate the dynamic types of the given declarations in a batch. The type identifiers and the bytecode are built in
+	 * parallel on the given pool, each generation with its own scratch state and each worker thread with its own generator,
+	 * then the classes are declared to the loader and put into the pool of this factory in the order of the declarations.
+	 * <p>The base classes are {@linkplain DynamicMaker#handleBaseClass(Class) handled} on the calling thread before the
+	 * parallel building, so everything a generated class depends on is loaded before it is declared. The types that have
+	 * been generated, pre-generated or cached are not generated again.
+	 *
+	 * @param declarations The types to generate
+	 * @param generators   Provides the generator used by each worker thread, the generators should declare the classes to the given loader
+	 * @param loader       The loader the generated classes are declared to
+	 * @param pool         The pool that the type identifiers and the bytecode are built on
+	 * @return The generated types, in the order of the declarations
+	 * @throws IllegalHandleException if the variable layout is {@link VariableLayout#FIELDS} or the stub generation is
+	 *                                {@link StubGeneration#DECLARED}, the classes in these modes depend on the dynamic classes
+	 */
+	public List<Class<?>> generateAll(List<TypeDeclaration> declarations, Supplier<? extends AbstractClassGenerator> generators, ByteClassLoader loader, ForkJoinPool pool) {
+		Settings options = settings;
+		if (options.variableLayout == VariableLayout.FIELDS)
+			throw new IllegalHandleException("the classes in the FIELDS layout are specialized for each dynamic class, cannot be generated in a batch");
+		if (options.stubGeneration == StubGeneration.DECLARED)
+			throw new IllegalHandleException("the classes with DECLARED stubs depend on the functions of the dynamic classes, cannot be generated in a batch");
+
+		Settings lastOptions = settingsTarget.get();
+		settingsTarget.set(options);
+		try {
+			return generateAll(declarations, generators, loader, pool, options);
+		} finally {
+			settingsTarget.set(lastOptions);
+		}
+	}
+
+	private List<Class<?>> generateAll(List<TypeDeclaration> declarations, Supplier<? extends AbstractClassGenerator> generators, ByteClassLoader loader, ForkJoinPool pool, Settings options) {
+		Class<?>[] res = new Class[declarations.size()];
+		ArrayList<Batched> tasks = new ArrayList<>();
+
+		for (int i = 0; i < res.length; i++) {
+			TypeDeclaration declaration = declarations.get(i);
+			ClassImplements<?> key = new ClassImplements<>(declaration.base, declaration.interfaces, declaration.aspects);
+			if ((res[i] = classPool.get(key)) != null) continue;
 
+			Class<?> c = declaration.base;
 			while (c != null) {
 				helper.makeAccess(c);
 				c = c.getSuperclass();
 			}
 
-			return generateClass(handleBaseClass(base), interfaces, aspects);
-		});
+			Class<?> handled = handleBaseClass(declaration.base);
+			String cacheKey = options.bytecodeCache == null ? null : cacheKey(declaration.base, handled, declaration.interfaces, declaration.aspects, null);
+			GenerationMetrics.Recording recording = metrics.begin(declaration.base);
+			GenerationStats.Source source = GenerationStats.Source.PREGENERATED;
+			Class<?> existed = findPregenerated(handled, declaration.interfaces, declaration.aspects);
+			if (existed == null && cacheKey != null) {
+				source = GenerationStats.Source.BYTECODE_CACHE;
+				existed = options.bytecodeCache.load(cacheKey);
+			}
+
+			if (existed != null) {
+				recording.finish(existed, source);
+				res[i] = publish(options, key, existed);
+			} else tasks.add(new Batched(i, key, handled, cacheKey, recording));
+		}
+
+		ThreadLocal<AbstractClassGenerator> generator = ThreadLocal.withInitial(generators);
+		pool.submit(() -> tasks.parallelStream().forEach(task -> {
+			GenerationObserver last = AbstractClassGenerator.observe(task.recording);
+			Settings lastTarget = settingsTarget.get();
+			settingsTarget.set(options);
+			try {
+				task.classInfo = makeClassInfo(task.handled, task.key.interfaces, task.key.aspects);
+				task.byteCode = generator.get().genByteCode(task.classInfo);
+			} finally {
+				settingsTarget.set(lastTarget);
+				AbstractClassGenerator.observe(last);
+			}
+		})).join();
+
+		for (Batched task : tasks) {
+			String name = task.classInfo.name();
+			long start = System.nanoTime();
+			try {
+				try {
+					res[task.index] = loader.loadClass(name, false);
+				} catch (ClassNotFoundException e) {
+					loader.declareClass(name, task.byteCode);
+					res[task.index] = loader.loadClass(name, false);
+				}
+			} catch (ClassNotFoundException e) {
+				throw new IllegalHandleException(e);
+			}
+			task.recording.classDefined(task.classInfo, res[task.index], System.nanoTime() - start);
+			task.recording.finish(res[task.index]);
+
+			res[task.index] = publish(options, task.key, res[task.index]);
+			if (task.cacheKey != null) options.bytecodeCache.store(task.cacheKey, task.byteCode);
+		}
+
+		return Arrays.asList(res);
+	}
+
+	/**
+	 * Put the generated type into the pool if the options it was generated with are still current, otherwise the caches
+	 * were cleared during the generation, and the type is only returned to the caller.
+	 *
+	 * @return The type in the pool, or the given type if it was put into the pool or the options are outdated
+	 */
+	private Class<?> publish(Settings options, ClassImplements<?> key, Class<?> type) {
+		synchronized (classPool) {
+			if (settings != options) return type;
+
+			Class<?> existed = classPool.putIfAbsent(key, type);
+			return existed == null ? type : existed;
+		}
+	}
+
+	/** Get the options of the class being generated on current thread, or the current options out of a generation. */
+	private Settings settings() {
+		Settings res = settingsTarget.get();
+		return res == null ? settings : res;
+	}
+
+	private Class<?> findPregenerated(Class<?> handled, Class<?>[] interfaces, Class<?>[] aspects) {
+		ClassLoader loader = handled.getClassLoader() == null ? getClass().getClassLoader() : handled.getClassLoader();
+
+		try {
+			Class<?> res = Class.forName(getPregeneratedName(handled, interfaces, aspects, settings().dispatchMode, settings().variableLayout), false, loader);
+			return handled.isAssignableFrom(res) ? res : null;
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+	}
+
+	private String cacheKey(Class<?> base, Class<?> handled, Class<?>[] interfaces, Class<?>[] aspects, Set<String> stubs) {
+		ArrayList<Class<?>> classes = new ArrayList<>();
+		classes.add(base);
+		classes.add(getClass());
+		// the generated bytecode also depends on the library building and writing it
+		classes.add(ClassInfo.class);
+		classes.add(CodeBlock.class);
+		classes.add(ASMGenerator.class);
+		classes.addAll(LINKED_CLASSES);
+		classes.addAll(Arrays.asList(interfaces));
+		if (aspects != null) classes.addAll(Arrays.asList(aspects));
+
+		Settings options = settings();
+		return options.bytecodeCache.key(
+				classes,
+				handled.getName(),
+				Arrays.toString(interfaces),
+				aspects == null ? "all" : Arrays.toString(aspects),
+				options.dispatchMode.name(),
+				options.variableLayout.name(),
+				stubs == null ? "all" : new TreeSet<>(stubs).toString()
+		);
 	}
 
 	/**
@@ -430,6 +1030,79 @@ public abstract class DynamicMaker {
 		return ensurePackage(baseClass.getName()) + "$dynamic$" + FunctionType.typeNameHash(interfaces);
 	}
 
+	/**
+	 * Establish the name of a dynamic class specialized for the given dynamic class, see {@link VariableLayout#FIELDS}.
+	 *
+	 * @param baseClass  base class
+	 * @param layout     The dynamic class that the generated class is specialized for
+	 * @param interfaces Interface List
+	 * @return The packaging name appended with the name of the dynamic class
+	 */
+	public static <T> String getDynamicName(Class<T> baseClass, DynamicClass layout, Class<?>... interfaces) {
+		return getDynamicName(baseClass, layout, null, interfaces);
+	}
+
+	/**
+	 * Establish the name of a dynamic class specialized for the given dynamic class and overriding the given methods,
+	 * see {@link VariableLayout#FIELDS} and {@link StubGeneration#DECLARED}.
+	 *
+	 * @param baseClass  base class
+	 * @param layout     The dynamic class that the generated class is specialized for, can be null
+	 * @param stubs      The names of the methods that the generated class overrides, null for all overridable methods
+	 * @param interfaces Interface List
+	 * @return The packaging name appended with the name of the dynamic class and a hash of the method names
+	 */
+	public static <T> String getDynamicName(Class<T> baseClass, DynamicClass layout, Set<String> stubs, Class<?>... interfaces) {
+		String res = layout == null ? getDynamicName(baseClass, interfaces) : getLayoutName(baseClass, layout, interfaces);
+
+		return res + stubsSuffix(stubs);
+	}
+
+	/**
+	 * The suffix of the names of the classes generated with the options other than the defaults, so that the classes
+	 * generated after the options changed do not collide with the classes already defined.
+	 */
+	private static String optionsSuffix(Settings options) {
+		StringBuilder builder = new StringBuilder();
+		if (options.dispatchMode != DispatchMode.INLINE_CACHE) builder.append('$').append(options.dispatchMode.name().toLowerCase(Locale.ROOT));
+		if (options.variableLayout != VariableLayout.HASH_MAP) builder.append('$').append(options.variableLayout.name().toLowerCase(Locale.ROOT));
+
+		return builder.toString();
+	}
+
+	private static String stubsSuffix(Set<String> stubs) {
+		return stubs == null ? "" : "$stubs$" + Integer.toHexString(new TreeSet<>(stubs).toString().hashCode());
+	}
+
+	private static <T> String getLayoutName(Class<T> baseClass, DynamicClass layout, Class<?>... interfaces) {
+		String name = layout.getName();
+		StringBuilder builder = new StringBuilder(name.length());
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			builder.append(Character.isJavaIdentifierPart(c) ? c : '_');
+		}
+
+		return getDynamicName(baseClass, interfaces) + "$" + builder + "$" + Integer.toHexString(name.hashCode());
+	}
+
+	/**
+	 * Establish the name of a dynamic class generated at build time, see {@link AotGenerator}. The name is the packaging
+	 * name appended with a hash of the aspects, the dispatch mode and the variable layout, so a pre-generated class is only
+	 * used by the factories generating the same class.
+	 *
+	 * @param baseClass  base class
+	 * @param interfaces Interface List
+	 * @param aspects    The aspect interfaces, null for the full delegation
+	 * @param mode       The dispatch mode
+	 * @param layout     The variable layout
+	 * @return The name of the pre-generated class
+	 */
+	public static <T> String getPregeneratedName(Class<T> baseClass, Class<?>[] interfaces, Class<?>[] aspects, DispatchMode mode, VariableLayout layout) {
+		String config = (aspects == null ? "all" : String.valueOf(FunctionType.typeNameHash(aspects))) + ";" + mode.name() + ";" + layout.name();
+
+		return getDynamicName(baseClass, interfaces) + "$aot$" + Integer.toHexString(config.hashCode());
+	}
+
 	private static String ensurePackage(String name) {
 		if (name.startsWith("java.")) {
 			return name.replaceFirst("java\\.", "lava.");
@@ -445,6 +1118,8 @@ public abstract class DynamicMaker {
 	 */
 	@SuppressWarnings({"unchecked"})
 	protected <T> ClassInfo<? extends T> makeClassInfoOnDynamic(Class<T> baseClass, Class<?>[] interfaces, Class<?>[] aspects) {
+		long start = System.nanoTime();
+		Scratch scratch = new Scratch();
 		LinkedHashSet<ClassInfo<?>> inter = new LinkedHashSet<>();
 		inter.add(asType(DynamicObject.class));
 		inter.add(asType(SuperInvoker.class));
@@ -453,23 +1128,21 @@ public abstract class DynamicMaker {
 			inter.add(asType(i));
 		}
 
-		INTERFACE_STACK.clear();
-		INTERFACE_TEMP.clear();
 		HashMap<String, HashMap<FunctionType, FuzzyMatcher>> aspectPoints = new HashMap<>();
 		if (aspects != null) {
 			for (Class<?> i : aspects) {
 				inter.add(asType(i));
-				INTERFACE_STACK.push(i);
+				scratch.interfaceStack.push(i);
 			}
 
-			while (!INTERFACE_STACK.isEmpty()) {
-				Class<?> i = INTERFACE_STACK.pop();
+			while (!scratch.interfaceStack.isEmpty()) {
+				Class<?> i = scratch.interfaceStack.pop();
 				if (i.getAnnotation(AspectInterface.class) == null)
 					throw new IllegalHandleException("aspect interfaces must has AspectInterface annotated, but " + i + " doesn't");
 
-				if (INTERFACE_TEMP.add(i)) {
+				if (scratch.interfaceTemp.add(i)) {
 					for (Class<?> ai : i.getInterfaces()) {
-						INTERFACE_STACK.push(ai);
+						scratch.interfaceStack.push(ai);
 					}
 
 					for (Method method : i.getMethods()) {
@@ -505,9 +1178,10 @@ public abstract class DynamicMaker {
 			aspectPoints.put(ANY, null);
 		}
 
+		Set<String> stubs = stubTarget.get();
 		ClassInfo<? extends T> classInfo = new ClassInfo<>(
 				Modifier.PUBLIC,
-				ensurePackage(baseClass.getName()) + "$" + FunctionType.typeNameHash(interfaces),
+				ensurePackage(baseClass.getName()) + "$" + FunctionType.typeNameHash(interfaces) + stubsSuffix(stubs),
 				asType(baseClass),
 				inter.toArray(new ClassInfo[0])
 		);
@@ -518,6 +1192,8 @@ public abstract class DynamicMaker {
 				null
 		);
 
+		FieldInfo<DataPool> dataPool = asType(baseClass).getField(DATA_POOL_TYPE, "$datapool$");
+
 		CodeBlock<Void> clinit = classInfo.getClinitBlock();
 		ILocal<HashMap> caseIndex = clinit.local(HASH_MAP_TYPE);
 		clinit.newInstance(
@@ -546,20 +1222,20 @@ public abstract class DynamicMaker {
 			code.invokeSuper(code.getThis(), constructor, null, code.getParamList().toArray(new ILocal<?>[0]));
 		}
 
-		OVERRIDES.clear();
-		FINALS.clear();
+		scratch.overrides.clear();
+		scratch.finals.clear();
 
 		// Exclude methods that have been marked as final, as the type being delegated does not iterate upwards, exclude final methods in advance
 		Class<?> curr = baseClass;
 		while (curr != null) {
 			for (Method method : curr.getDeclaredMethods()) {
-				filterMethod(method);
+				filterMethod(scratch, method);
 			}
 
 			curr = curr.getSuperclass();
 		}
 
-		OVERRIDES.clear();
+		scratch.overrides.clear();
 
 		// Only handle newly implemented interfaces and sectional interfaces
 		ArrayList<Class<?>> lis = new ArrayList<>(Arrays.asList(interfaces));
@@ -568,7 +1244,7 @@ public abstract class DynamicMaker {
 		for (Class<?> interf : lis) {
 			ClassInfo<?> typeClass = asType(interf);
 			for (Method method : interf.getDeclaredMethods()) {
-				if (!filterMethod(method)) continue;
+				if (!filterMethod(scratch, method)) continue;
 
 				String methodName = method.getName();
 				ClassInfo<?> returnType = asType(method.getReturnType());
@@ -581,7 +1257,7 @@ public abstract class DynamicMaker {
 
 				if (!aspectPoints.containsKey(ANY) && !aspectPoints.getOrDefault(method.getName(), EMP_MAP).containsKey(FunctionType.from(method))
 						&& aspectPoints.getOrDefault(method.getName(), ((HashMap<FunctionType, FuzzyMatcher>) EMP_MAP)).values().stream().noneMatch(e -> e.match(method,
-						INTERFACE_TEMP.contains(interf),
+						scratch.interfaceTemp.contains(interf),
 						superMethod == null))
 				) {
 					if (superMethod == null)
@@ -590,31 +1266,49 @@ public abstract class DynamicMaker {
 					continue;
 				}
 
+				// only the abstract methods and the methods with a declared function are overridden in DECLARED stub generation
+				if (stubs != null && superMethod != null && !stubs.contains(methodName)) continue;
+
 				if (superMethod != null) callSuperCaseMap.put(superMethod, callSuperCaseMap.size());
 
 				String typeF = methodName + "$" + FunctionType.typeNameHash(method.getParameterTypes());
+
+				//	public Object $super$*name*$*hash*(ArgumentList args) {
+				//		return super.*method*(args.args()[0], args.args()[1],...);
+				//	}
+				if (superMethod != null) genSuperBridge(classInfo, superMethod, SUPER_BRIDGE + typeF);
 				FieldInfo<FunctionType> funType = classInfo.declareField(
 						Modifier.PRIVATE | Modifier.STATIC | Modifier.FINAL,
 						typeF,
 						FUNCTION_TYPE_TYPE,
 						null
 				);
+				FieldInfo<InlineCache> site = settings().dispatchMode == DispatchMode.INLINE_CACHE ? classInfo.declareField(
+						Modifier.PRIVATE | Modifier.STATIC | Modifier.FINAL,
+						typeF + "$site",
+						INLINE_CACHE_TYPE,
+						null
+				) : null;
 
 				//	private static final FunctionType FUNCTION_TYPE$*name*;
+				//	private static final InlineCache FUNCTION_TYPE$*name*$site; // only in INLINE_CACHE mode
 				//	static {
 				//		...
 				//		FUNCTION_TYPE$*signature* = FunctionType.as(*paramTypes*);
+				//		FUNCTION_TYPE$*signature*$site = new InlineCache("*name*", FUNCTION_TYPE$*signature*);
 				//		methodIndex.put(*signature*, *index*);
 				//		...
 				//	}
 				Integer index = callSuperCaseMap.get(superMethod);
-				genCinit(method, clinit, funType, methodIndex, index == null ? -1 : index);
+				genCinit(method, clinit, funType, site, methodIndex, index == null ? -1 : index);
 
 				//	@DynamicMethod
 				//	public *returnType* *name*(*parameters*) {
-				//		*[return]* this.invokeFunc(FUNCTION_TYPE$*signature* ,"*name*", parameters);
+				//		*[return]* FUNCTION_TYPE$*signature*$site.invoke(this, this.$datapool$, parameters);
+				//		// or in INVOKE_DYNAMIC mode:
+				//		*[return]* invokedynamic *name*(this, this.$datapool$, parameters) [DynamicCallSite.bootstrap, "FUNCTION_TYPE$*signature*"];
 				//	}
-				invokeProxy(classInfo, method, methodName, returnType, funType);
+				invokeProxy(classInfo, method, methodName, returnType, typeF, site, dataPool);
 			}
 		}
 
@@ -677,6 +1371,8 @@ public abstract class DynamicMaker {
 			code.returnValue(stack(OBJECT_TYPE));
 		}
 
+		classInfoBuilt(classInfo, start);
+
 		return classInfo;
 	}
 
@@ -699,34 +1395,37 @@ public abstract class DynamicMaker {
 		if (baseClass.getAnnotation(DynamicType.class) != null)
 			return makeClassInfoOnDynamic(baseClass, interfaces, aspects);
 
+		long start = System.nanoTime();
+		Scratch scratch = new Scratch();
 		LinkedHashSet<ClassInfo<?>> inter = new LinkedHashSet<>();
 		inter.add(asType(DynamicObject.class));
 		inter.add(asType(SuperInvoker.class));
 
+		boolean shaped = settings().variableLayout == VariableLayout.SHAPE;
+		if (shaped) inter.add(SHAPE_HOLDER_TYPE);
+
 		for (Class<?> i : interfaces) {
 			inter.add(asType(i));
 		}
 
-		INTERFACE_STACK.clear();
-		INTERFACE_TEMP.clear();
 		HashMap<String, HashMap<FunctionType, FuzzyMatcher>> aspectPoints = new HashMap<>();
 		if (aspects != null) {
 			for (Class<?> i : aspects) {
 				inter.add(asType(i));
-				INTERFACE_STACK.push(i);
+				scratch.interfaceStack.push(i);
 			}
 
-			while (!INTERFACE_STACK.isEmpty()) {
-				Class<?> i = INTERFACE_STACK.pop();
+			while (!scratch.interfaceStack.isEmpty()) {
+				Class<?> i = scratch.interfaceStack.pop();
 				if (!i.isInterface())
 					throw new IllegalHandleException("aspects must be interface, but find class: " + i);
 
 				if (i.getAnnotation(AspectInterface.class) == null)
 					throw new IllegalHandleException("aspect interfaces must has AspectInterface annotated, but " + i + " doesn't");
 
-				if (INTERFACE_TEMP.add(i)) {
+				if (scratch.interfaceTemp.add(i)) {
 					for (Class<?> ai : i.getInterfaces()) {
-						INTERFACE_STACK.push(ai);
+						scratch.interfaceStack.push(ai);
 					}
 
 					for (Method method : i.getMethods()) {
@@ -762,9 +1461,11 @@ public abstract class DynamicMaker {
 			aspectPoints.put(ANY, null);
 		}
 
+		DynamicClass layout = layoutTarget.get();
+		Set<String> stubs = stubTarget.get();
 		ClassInfo<? extends T> classInfo = new ClassInfo<>(
 				Modifier.PUBLIC,
-				getDynamicName(baseClass, interfaces),
+				getDynamicName(baseClass, layout, stubs, interfaces) + optionsSuffix(settings()),
 				asType(baseClass),
 				inter.toArray(new ClassInfo[0])
 		);
@@ -776,17 +1477,55 @@ public abstract class DynamicMaker {
 				null
 		);
 		FieldInfo<DataPool> dataPool = classInfo.declareField(
-				Modifier.PRIVATE | Modifier.FINAL,
+				Modifier.PROTECTED | Modifier.FINAL,
 				"$datapool$",
 				DATA_POOL_TYPE,
 				null
 		);
-		FieldInfo<HashMap<String, Object>> varPool = (FieldInfo) classInfo.declareField(
-				Modifier.PRIVATE | Modifier.FINAL,
-				"$varValuePool$",
+		// in FIELDS layout, the map is the overflow of variables added after generation, it is created lazily by FieldLayout
+		FieldInfo<HashMap<String, Object>> varPool = shaped ? null : (FieldInfo) classInfo.declareField(
+				layout == null ? Modifier.PRIVATE | Modifier.FINAL : Modifier.PRIVATE,
+				FieldLayout.OVERFLOW_FIELD,
 				HASH_MAP_TYPE,
 				null
 		);
+		FieldInfo<Shape> shape = shaped ? classInfo.declareField(
+				Modifier.PRIVATE,
+				"$shape$",
+				SHAPE_TYPE,
+				null
+		) : null;
+		FieldInfo<Object[]> slots = shaped ? classInfo.declareField(
+				Modifier.PRIVATE,
+				"$slots$",
+				OBJECT_TYPE.asArray(),
+				null
+		) : null;
+		FieldInfo<long[]> bank = shaped ? classInfo.declareField(
+				Modifier.PRIVATE,
+				"$bank$",
+				LONG_ARRAY_TYPE,
+				null
+		) : null;
+
+		//	private *type* $var$*name*;
+		//	...
+		if (layout != null) {
+			HashSet<String> declared = new HashSet<>();
+			for (DynamicClass curr = layout; curr != null; curr = curr.superDyClass()) {
+				for (IVariable var : curr.getVariables()) {
+					if (!declared.add(var.name())) continue;
+
+					Class<?> type = var instanceof Variable v ? v.getType() : null;
+					classInfo.declareField(
+							Modifier.PRIVATE,
+							FieldLayout.FIELD_PREFIX + var.name(),
+							(ClassInfo<Object>) (type != null && type.isPrimitive() ? asType(type) : OBJECT_TYPE),
+							null
+					);
+				}
+			}
+		}
 		FieldInfo<DataPool.ReadOnlyPool> basePoolPointer = classInfo.declareField(
 				Modifier.PRIVATE | Modifier.FINAL,
 				"$superbasepointer$",
@@ -842,9 +1581,21 @@ public abstract class DynamicMaker {
 			code.assign(self, dyC, dyType);
 			code.assign(self, datP, dataPool);
 
-			code.assign(self, stack(classInfo));
-			code.newInstance(HASH_MAP_TYPE.getConstructor(), stack(HASH_MAP_TYPE));
-			code.assign(stack(classInfo), stack(HASH_MAP_TYPE), varPool);
+			if (shaped) {
+				code.assign(self, stack(classInfo));
+				code.assign(null, SHAPE_TYPE.getField(SHAPE_TYPE, "EMPTY"), stack(SHAPE_TYPE));
+				code.assign(stack(classInfo), stack(SHAPE_TYPE), shape);
+				code.assign(self, stack(classInfo));
+				code.invoke(null, SHAPE_EMPTY_SLOTS, stack(OBJECT_TYPE.asArray()));
+				code.assign(stack(classInfo), stack(OBJECT_TYPE.asArray()), slots);
+				code.assign(self, stack(classInfo));
+				code.invoke(null, SHAPE_EMPTY_BANK, stack(LONG_ARRAY_TYPE));
+				code.assign(stack(classInfo), stack(LONG_ARRAY_TYPE), bank);
+			} else if (layout == null) {
+				code.assign(self, stack(classInfo));
+				code.newInstance(HASH_MAP_TYPE.getConstructor(), stack(HASH_MAP_TYPE));
+				code.assign(stack(classInfo), stack(HASH_MAP_TYPE), varPool);
+			}
 
 			code.invokeSuper(self, constructor, null, l.subList(3, l.size()).toArray(LOCALS_EMP));
 
@@ -867,29 +1618,29 @@ public abstract class DynamicMaker {
 			code.invoke(null, RECYCLE_LIST, null, argList);
 		}
 
-		OVERRIDES.clear();
-		FINALS.clear();
-		INTERFACE_TEMP.clear();
+		scratch.overrides.clear();
+		scratch.finals.clear();
+		scratch.interfaceTemp.clear();
 
 		ArrayList<Class<?>> lis = new ArrayList<>(Arrays.asList(interfaces));
 		if (aspects != null) lis.addAll(Arrays.asList(aspects));
 
 		for (Class<?> ic : lis) {
-			INTERFACE_STACK.push(ic);
-			INTERFACE_TEMP.add(ic);
+			scratch.interfaceStack.push(ic);
+			scratch.interfaceTemp.add(ic);
 		}
 
 		Class<?> curr = baseClass;
-		while (curr != null || !INTERFACE_STACK.empty()) {
+		while (curr != null || !scratch.interfaceStack.empty()) {
 			if (curr != null) {
 				for (Class<?> i : curr.getInterfaces()) {
-					if (INTERFACE_TEMP.add(i)) INTERFACE_STACK.push(i);
+					if (scratch.interfaceTemp.add(i)) scratch.interfaceStack.push(i);
 				}
-			} else curr = INTERFACE_STACK.pop();
+			} else curr = scratch.interfaceStack.pop();
 
 			ClassInfo<?> typeClass = asType(curr);
 			for (Method method : curr.getDeclaredMethods()) {
-				if (!filterMethod(method)) continue;
+				if (!filterMethod(scratch, method)) continue;
 
 				String methodName = method.getName();
 				ClassInfo<?> returnType = asType(method.getReturnType());
@@ -903,7 +1654,7 @@ public abstract class DynamicMaker {
 				Class<?> finalCurr = curr;
 				if (!aspectPoints.containsKey(ANY) && !aspectPoints.getOrDefault(method.getName(), EMP_MAP).containsKey(FunctionType.from(method))
 						&& aspectPoints.getOrDefault(method.getName(), ((HashMap<FunctionType, FuzzyMatcher>) EMP_MAP)).values().stream().noneMatch(e -> e.match(method,
-						finalCurr == baseClass || INTERFACE_TEMP.contains(finalCurr),
+						finalCurr == baseClass || scratch.interfaceTemp.contains(finalCurr),
 						superMethod == null
 				))
 				) {
@@ -913,31 +1664,49 @@ public abstract class DynamicMaker {
 					continue;
 				}
 
+				// only the abstract methods and the methods with a declared function are overridden in DECLARED stub generation
+				if (stubs != null && superMethod != null && !stubs.contains(methodName)) continue;
+
 				if (superMethod != null) callSuperCaseMap.put(superMethod, callSuperCaseMap.size());
 
 				String typeF = methodName + "$" + FunctionType.typeNameHash(method.getParameterTypes());
+
+				//	public Object $super$*name*$*hash*(ArgumentList args) {
+				//		return super.*method*(args.args()[0], args.args()[1],...);
+				//	}
+				if (superMethod != null) genSuperBridge(classInfo, superMethod, SUPER_BRIDGE + typeF);
 				FieldInfo<FunctionType> funType = classInfo.declareField(
 						Modifier.PRIVATE | Modifier.STATIC | Modifier.FINAL,
 						typeF,
 						FUNCTION_TYPE_TYPE,
 						null
 				);
+				FieldInfo<InlineCache> site = settings().dispatchMode == DispatchMode.INLINE_CACHE ? classInfo.declareField(
+						Modifier.PRIVATE | Modifier.STATIC | Modifier.FINAL,
+						typeF + "$site",
+						INLINE_CACHE_TYPE,
+						null
+				) : null;
 
 				//	private static final FunctionType FUNCTION_TYPE$*name*;
+				//	private static final InlineCache FUNCTION_TYPE$*name*$site; // only in INLINE_CACHE mode
 				//	static {
 				//		...
 				//		FUNCTION_TYPE$*signature* = FunctionType.as(*paramTypes*);
+				//		FUNCTION_TYPE$*signature*$site = new InlineCache("*name*", FUNCTION_TYPE$*signature*);
 				//		methodIndex.put(*signature*, *index*);
 				//		...
 				//	}
 				Integer index = callSuperCaseMap.get(superMethod);
-				genCinit(method, clinit, funType, methodIndex, index == null ? -1 : index);
+				genCinit(method, clinit, funType, site, methodIndex, index == null ? -1 : index);
 
 				//	@DynamicMethod
 				//	public *returnType* *name*(*parameters*) {
-				//		*[return]* this.invokeFunc(FUNCTION_TYPE$*signature* ,"*name*", parameters);
+				//		*[return]* FUNCTION_TYPE$*signature*$site.invoke(this, this.$datapool$, parameters);
+				//		// or in INVOKE_DYNAMIC mode:
+				//		*[return]* invokedynamic *name*(this, this.$datapool$, parameters) [DynamicCallSite.bootstrap, "FUNCTION_TYPE$*signature*"];
 				//	}
-				invokeProxy(classInfo, method, methodName, returnType, funType);
+				invokeProxy(classInfo, method, methodName, returnType, typeF, site, dataPool);
 			}
 
 			if (!curr.isInterface()) {
@@ -982,6 +1751,10 @@ public abstract class DynamicMaker {
 
 		//	public <T> T varValueGet(String name) {
 		//		return this.$varValuePool$.get(name);
+		//		// or in FIELDS layout:
+		//		return FieldLayout.get(this, name);
+		//		// or in SHAPE layout:
+		//		return Shape.get(this, name);
 		//	}
 		{
 			CodeBlock<Object> code = classInfo.declareMethod(
@@ -990,13 +1763,23 @@ public abstract class DynamicMaker {
 					OBJECT_TYPE,
 					ParameterInfo.trans(STRING_TYPE)
 			);
-			code.assign(code.getThis(), varPool, stack(HASH_MAP_TYPE));
-			code.invoke(stack(HASH_MAP_TYPE), MAP_GET, stack(OBJECT_TYPE), code.getRealParam(0));
+			if (shaped) {
+				code.invokeStatic(SHAPE_GET, stack(OBJECT_TYPE), code.getThis(), code.getRealParam(0));
+			} else if (layout == null) {
+				code.assign(code.getThis(), varPool, stack(HASH_MAP_TYPE));
+				code.invoke(stack(HASH_MAP_TYPE), MAP_GET, stack(OBJECT_TYPE), code.getRealParam(0));
+			} else {
+				code.invokeStatic(LAYOUT_GET, stack(OBJECT_TYPE), code.getThis(), code.getRealParam(0));
+			}
 			code.returnValue(stack(OBJECT_TYPE));
 		}
 
 		//	public <T> varValueSet(String name, Object value) {
 		//		return this.$varValuePool$.put(name, value);
+		//		// or in FIELDS layout:
+		//		FieldLayout.set(this, name, value);
+		//		// or in SHAPE layout:
+		//		Shape.set(this, name, value);
 		//	}
 		{
 			CodeBlock<Void> code = classInfo.declareMethod(
@@ -1008,8 +1791,68 @@ public abstract class DynamicMaker {
 							OBJECT_TYPE
 					)
 			);
-			code.assign(code.getThis(), varPool, stack(HASH_MAP_TYPE));
-			code.invoke(stack(HASH_MAP_TYPE), MAP_PUT, null, code.getRealParam(0), code.getRealParam(1));
+			if (shaped) {
+				code.invokeStatic(SHAPE_SET, null, code.getThis(), code.getRealParam(0), code.getRealParam(1));
+			} else if (layout == null) {
+				code.assign(code.getThis(), varPool, stack(HASH_MAP_TYPE));
+				code.invoke(stack(HASH_MAP_TYPE), MAP_PUT, null, code.getRealParam(0), code.getRealParam(1));
+			} else {
+				code.invokeStatic(LAYOUT_SET, null, code.getThis(), code.getRealParam(0), code.getRealParam(1));
+			}
+		}
+
+		//	public Shape $shape() {
+		//		return this.$shape$;
+		//	}
+		//	public Object[] $slots() {
+		//		return this.$slots$;
+		//	}
+		//	public long[] $bank() {
+		//		return this.$bank$;
+		//	}
+		//	public void $reshape(Shape shape, Object[] slots, long[] bank) {
+		//		this.$shape$ = shape;
+		//		this.$slots$ = slots;
+		//		this.$bank$ = bank;
+		//	}
+		if (shaped) {
+			CodeBlock<Shape> getShape = classInfo.declareMethod(
+					Modifier.PUBLIC,
+					"$shape",
+					SHAPE_TYPE
+			);
+			getShape.assign(getShape.getThis(), shape, stack(SHAPE_TYPE));
+			getShape.returnValue(stack(SHAPE_TYPE));
+
+			CodeBlock<Object[]> getSlots = classInfo.declareMethod(
+					Modifier.PUBLIC,
+					"$slots",
+					OBJECT_TYPE.asArray()
+			);
+			getSlots.assign(getSlots.getThis(), slots, stack(OBJECT_TYPE.asArray()));
+			getSlots.returnValue(stack(OBJECT_TYPE.asArray()));
+
+			CodeBlock<long[]> getBank = classInfo.declareMethod(
+					Modifier.PUBLIC,
+					"$bank",
+					LONG_ARRAY_TYPE
+			);
+			getBank.assign(getBank.getThis(), bank, stack(LONG_ARRAY_TYPE));
+			getBank.returnValue(stack(LONG_ARRAY_TYPE));
+
+			CodeBlock<Void> reshape = classInfo.declareMethod(
+					Modifier.PUBLIC,
+					"$reshape",
+					VOID_TYPE,
+					ParameterInfo.trans(
+							SHAPE_TYPE,
+							OBJECT_TYPE.asArray(),
+							LONG_ARRAY_TYPE
+					)
+			);
+			reshape.assign(reshape.getThis(), reshape.getRealParam(0), shape);
+			reshape.assign(reshape.getThis(), reshape.getRealParam(1), slots);
+			reshape.assign(reshape.getThis(), reshape.getRealParam(2), bank);
 		}
 
 		//	public IVariable getVariable(String name) {
@@ -1104,6 +1947,8 @@ public abstract class DynamicMaker {
 		AnnotationType<DynamicType> dycAnno = AnnotationType.asAnnotationType(DynamicType.class);
 		dycAnno.annotateTo(classInfo, null);
 
+		classInfoBuilt(classInfo, start);
+
 		return classInfo;
 	}
 
@@ -1160,7 +2005,7 @@ public abstract class DynamicMaker {
 		code.thr(stack(NOSUCH_METHOD));
 	}
 
-	private static void genCinit(Method method, CodeBlock<Void> clinit, FieldInfo<FunctionType> funType, FieldInfo<HashMap> methodIndex, int callSuperIndex) {
+	private static void genCinit(Method method, CodeBlock<Void> clinit, FieldInfo<FunctionType> funType, FieldInfo<InlineCache> site, FieldInfo<HashMap> methodIndex, int callSuperIndex) {
 		String signature = FunctionType.signature(method);
 		clinit.loadConstant(stack(INT_TYPE), method.getParameterCount());
 		clinit.newArray(
@@ -1187,6 +2032,15 @@ public abstract class DynamicMaker {
 
 		clinit.assign(null, stack(FUNCTION_TYPE_TYPE), funType);
 
+		if (site != null) {
+			ILocal<String> name = clinit.local(STRING_TYPE);
+			ILocal<FunctionType> type = clinit.local(FUNCTION_TYPE_TYPE);
+			clinit.loadConstant(name, method.getName());
+			clinit.assign(null, funType, type);
+			clinit.newInstance(CACHE_CONSTRUCTOR, stack(INLINE_CACHE_TYPE), name, type);
+			clinit.assign(null, stack(INLINE_CACHE_TYPE), site);
+		}
+
 		if (callSuperIndex == -1) return;
 
 		clinit.assign(null, methodIndex, stack(HASH_MAP_TYPE));
@@ -1209,7 +2063,7 @@ public abstract class DynamicMaker {
 	}
 
 	@SuppressWarnings("unchecked")
-	private static <T> void invokeProxy(ClassInfo<? extends T> classInfo, Method method, String methodName, ClassInfo<?> returnType, FieldInfo<FunctionType> funType) {
+	private static <T> void invokeProxy(ClassInfo<? extends T> classInfo, Method method, String methodName, ClassInfo<?> returnType, String typeField, FieldInfo<InlineCache> site, FieldInfo<DataPool> dataPool) {
 		CodeBlock<?> code = classInfo.declareMethod(
 				Modifier.PUBLIC,
 				methodName,
@@ -1223,6 +2077,17 @@ public abstract class DynamicMaker {
 		);
 		code.owner().addAnnotation(anno);
 
+		Class<?> shape = PrimitiveFunction.shapeOf(method.getReturnType(), method.getParameterTypes());
+		if (shape != null) {
+			invokeTyped(code, method, returnType, typeField, site, dataPool, shape);
+			return;
+		}
+
+		if (method.getParameterCount() <= FixedFunction.MAX_ARITY) {
+			invokeFixed(code, method, returnType, typeField, site, dataPool);
+			return;
+		}
+
 		code.loadConstant(stack(INT_TYPE), method.getParameterCount());
 		code.invoke(null, GET_LIST, stack(OBJECT_TYPE.asArray()), stack(INT_TYPE));
 
@@ -1237,31 +2102,144 @@ public abstract class DynamicMaker {
 		ILocal<Object[]> argList = code.local(OBJECT_TYPE.asArray());
 		code.assign(stack(OBJECT_TYPE.asArray()), argList);
 
-		if (returnType != VOID_TYPE) {
-			code.assign(code.getThis(), stack(classInfo));
-			code.assign(null, funType, stack(FUNCTION_TYPE_TYPE));
-			code.loadConstant(stack(STRING_TYPE), method.getName());
-			code.assign(argList, stack(OBJECT_TYPE.asArray()));
+		ILocal<DataPool> pool = code.local(DATA_POOL_TYPE);
+		code.assign(code.getThis(), dataPool, pool);
 
-			code.invoke(stack(classInfo), INVOKE, stack(OBJECT_TYPE), stack(OBJECT_TYPE));
-			code.invoke(null, RECYCLE_LIST, null, argList);
+		ILocal<Object> res = returnType != VOID_TYPE ? stack(OBJECT_TYPE) : null;
+		if (site != null) {
+			code.assign(null, site, stack(INLINE_CACHE_TYPE));
+			code.invoke(stack(INLINE_CACHE_TYPE), CACHE_INVOKE, res, code.getThis(), pool, argList);
+		} else {
+			code.invokeDynamic(CALL_SITE_BOOTSTRAP, method.getName(), OBJECT_TYPE, res, new Object[]{typeField}, code.getThis(), pool, argList);
+		}
+		code.invoke(null, RECYCLE_LIST, null, argList);
+
+		if (returnType != VOID_TYPE) {
 			code.cast(stack(OBJECT_TYPE), stack(returnType));
 			code.returnValue(stack((IClass) returnType));
+		}
+	}
+
+	/**
+	 * Generate the body of a dynamic method which has no more than {@link FixedFunction#MAX_ARITY} parameters, the
+	 * arguments are passed to the call site directly instead of being packed into an array:
+	 * <pre>{@code
+	 * Object res = *typeF*$site.call(this, this.$datapool$, arg0, arg1, ...);
+	 * // or in INVOKE_DYNAMIC mode:
+	 * Object res = invokedynamic *name*(this, this.$datapool$, arg0, arg1, ...);
+	 * return (*returnType*) res;
+	 * }</pre>
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private static void invokeFixed(CodeBlock<?> code, Method method, ClassInfo<?> returnType, String typeField, FieldInfo<InlineCache> site, FieldInfo<DataPool> dataPool) {
+		ILocal<?>[] args = new ILocal[method.getParameterCount() + 2];
+
+		for (int i = 0; i < method.getParameterCount(); i++) {
+			ILocal<?> arg = code.getRealParam(i);
+			if (arg.type().isPrimitive()) {
+				ILocal<Object> boxed = code.local(OBJECT_TYPE);
+				code.cast(arg, boxed);
+				arg = boxed;
+			}
+			args[i + 2] = arg;
+		}
+
+		ILocal<DataPool> pool = code.local(DATA_POOL_TYPE);
+		code.assign(code.getThis(), dataPool, pool);
+		args[0] = code.getThis();
+		args[1] = pool;
+
+		ILocal<Object> res = returnType != VOID_TYPE ? stack(OBJECT_TYPE) : null;
+		if (site != null) {
+			code.assign(null, site, stack(INLINE_CACHE_TYPE));
+			code.invoke(stack(INLINE_CACHE_TYPE), CACHE_CALLS[method.getParameterCount()], res, args);
 		} else {
-			code.assign(code.getThis(), stack(classInfo));
-			code.assign(null, funType, stack(FUNCTION_TYPE_TYPE));
-			code.loadConstant(stack(STRING_TYPE), method.getName());
-			code.assign(argList, stack(OBJECT_TYPE.asArray()));
+			code.invokeDynamic(CALL_SITE_BOOTSTRAP_FIXED, method.getName(), OBJECT_TYPE, res, new Object[]{typeField}, args);
+		}
 
-			code.invoke(stack(classInfo), INVOKE, null, stack(OBJECT_TYPE));
-			code.invoke(null, RECYCLE_LIST, null, argList);
+		if (returnType != VOID_TYPE) {
+			code.cast(stack(OBJECT_TYPE), stack(returnType));
+			code.returnValue(stack((IClass) returnType));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void invokeTyped(CodeBlock<?> code, Method method, ClassInfo<?> returnType, String typeField, FieldInfo<InlineCache> site, FieldInfo<DataPool> dataPool, Class<?> shape) {
+		ILocal<DataPool> pool = code.local(DATA_POOL_TYPE);
+		code.assign(code.getThis(), dataPool, pool);
+
+		ILocal<?>[] args = new ILocal[method.getParameterCount() + 2];
+		args[0] = code.getThis();
+		args[1] = pool;
+		for (int i = 0; i < method.getParameterCount(); i++) {
+			args[i + 2] = code.getRealParam(i);
+		}
+
+		ILocal res = returnType != VOID_TYPE ? stack((IClass) returnType) : null;
+		if (site == null) {
+			//	*[return]* invokedynamic *name*(this, this.$datapool$, parameters) [DynamicCallSite.bootstrapTyped, "FUNCTION_TYPE$*signature*"];
+			code.invokeDynamic(CALL_SITE_BOOTSTRAP_TYPED, method.getName(), (IClass) returnType, res, new Object[]{typeField}, args);
+			if (res != null) code.returnValue(res);
+			return;
+		}
+
+		//	Function func = FUNCTION_TYPE$*signature*$site.select(this.$datapool$).getFunc();
+		//	if (func instanceof *Shape*) {
+		//		*[return]* ((*Shape*) func).apply(this, parameters);
+		//	}
+		//	*[return]* func.call(this, FUNCTION_TYPE$*signature*, parameters);
+		ClassInfo<?> shapeType = asType(shape);
+		ILocal<Function> func = code.local(FUNCTION_TYPE);
+		code.assign(null, site, stack(INLINE_CACHE_TYPE));
+		code.invoke(stack(INLINE_CACHE_TYPE), CACHE_SELECT, stack(FUNC_ENTRY_TYPE), pool);
+		code.invoke(stack(FUNC_ENTRY_TYPE), ENTRY_GET_FUNC, func);
+
+		Label boxed = code.label();
+		ILocal<Boolean> typed = code.local(ClassInfo.BOOLEAN_TYPE);
+		code.instanceOf(func, shapeType, typed);
+		code.condition(typed, ICondition.CondCode.EQUAL, boxed);
+
+		ILocal<?> specialized = code.local(shapeType);
+		code.cast(func, specialized);
+		IClass<?>[] applyParams = new IClass[method.getParameterCount() + 1];
+		applyParams[0] = DYNAMIC_OBJECT_TYPE;
+		for (int i = 0; i < method.getParameterCount(); i++) {
+			applyParams[i + 1] = asType(method.getParameterTypes()[i]);
+		}
+		ILocal<?>[] applyArgs = new ILocal[applyParams.length];
+		System.arraycopy(args, 2, applyArgs, 1, applyArgs.length - 1);
+		applyArgs[0] = code.getThis();
+		code.invoke(specialized, shapeType.getMethod((IClass) returnType, "apply", applyParams), res, applyArgs);
+		if (res != null) code.returnValue(res);
+		else code.returnVoid();
+
+		code.markLabel(boxed);
+		ILocal<?>[] callArgs = new ILocal[method.getParameterCount() + 2];
+		IClass<?>[] callParams = new IClass[callArgs.length];
+		callArgs[0] = code.getThis();
+		callParams[0] = DYNAMIC_OBJECT_TYPE;
+		ILocal<FunctionType> type = code.local(FUNCTION_TYPE_TYPE);
+		code.assign(null, (FieldInfo<FunctionType>) code.owner().owner().getField(FUNCTION_TYPE_TYPE, typeField), type);
+		callArgs[1] = type;
+		callParams[1] = FUNCTION_TYPE_TYPE;
+		for (int i = 0; i < method.getParameterCount(); i++) {
+			ILocal<Object> box = code.local(OBJECT_TYPE);
+			code.cast(code.getRealParam(i), box);
+			callArgs[i + 2] = box;
+			callParams[i + 2] = OBJECT_TYPE;
+		}
+
+		code.invoke(func, FUNCTION_TYPE.getMethod(OBJECT_TYPE, "call", callParams), res == null ? null : stack(OBJECT_TYPE), callArgs);
+		if (res != null) {
+			code.cast(stack(OBJECT_TYPE), res);
+			code.returnValue(res);
 		}
 	}
 
-	private static boolean filterMethod(Method method) {
+	private static boolean filterMethod(Scratch scratch, Method method) {
 		// Methods that have already been declared as final will be added to the exclusion list
 		if (Modifier.isFinal(method.getModifiers())) {
-			DynamicMaker.FINALS.computeIfAbsent(method.getName(), e -> new HashSet<>()).add(FunctionType.from(method));
+			scratch.finals.computeIfAbsent(method.getName(), e -> new HashSet<>()).add(FunctionType.from(method));
 			return false;
 		}
 
@@ -1269,8 +2247,8 @@ public abstract class DynamicMaker {
 		if (Modifier.isStatic(method.getModifiers())) return false;
 		if ((method.getModifiers() & (Modifier.PUBLIC | Modifier.PROTECTED)) == 0) return false;
 
-		return !DynamicMaker.FINALS.computeIfAbsent(method.getName(), e -> new HashSet<>()).contains(FunctionType.from(method))
-				&& DynamicMaker.OVERRIDES.computeIfAbsent(method.getName(), e -> new HashSet<>()).add(FunctionType.from(method));
+		return !scratch.finals.computeIfAbsent(method.getName(), e -> new HashSet<>()).contains(FunctionType.from(method))
+				&& scratch.overrides.computeIfAbsent(method.getName(), e -> new HashSet<>()).add(FunctionType.from(method));
 	}
 
 	protected void makeSwitch(IClass<?> owner, HashMap<IMethod<?, ?>, Integer> callSuperCaseMap, CodeBlock<Object> code, ISwitch<Integer> iSwitch, ILocal<Object[]> args) {
@@ -1280,49 +2258,66 @@ public abstract class DynamicMaker {
 
 			iSwitch.addCase(entry.getValue(), l);
 
-			IMethod<?, ?> superMethod = entry.getKey();
-			if (Modifier.isInterface(superMethod.owner().modifiers())) {
-				IClass<?> c = code.owner().owner().superClass();
-				boolean found = false;
-				t:
-				while (c != null && c != OBJECT_TYPE) {
-					for (IClass<?> interf : c.interfaces()) {
-						if (interf == superMethod.owner()) {
-							found = true;
-							c = interf;
-							break t;
-						}
-					}
+			callSuper(owner, entry.getKey(), code, args);
+		}
+	}
 
-					c = c.superClass();
-				}
+	private <T> void genSuperBridge(ClassInfo<? extends T> classInfo, IMethod<?, ?> superMethod, String name) {
+		CodeBlock<Object> code = classInfo.declareMethod(
+				Modifier.PUBLIC,
+				name,
+				OBJECT_TYPE,
+				ParameterInfo.trans(ARG_LIST_TYPE)
+		);
 
-				if (found) {
-					c.getMethod(
-							superMethod.returnType(),
-							superMethod.name(),
-							superMethod.parameters().stream().map(ParameterInfo::getType).toArray(IClass[]::new)
-					);
+		ILocal<Object[]> args = code.local(OBJECT_TYPE.asArray());
+		code.invoke(code.getRealParam(0), ARG_LIST_ARGS, args);
+
+		callSuper(classInfo, superMethod, code, args);
+	}
+
+	private void callSuper(IClass<?> owner, IMethod<?, ?> superMethod, CodeBlock<Object> code, ILocal<Object[]> args) {
+		if (Modifier.isInterface(superMethod.owner().modifiers())) {
+			IClass<?> c = code.owner().owner().superClass();
+			boolean found = false;
+			t:
+			while (c != null && c != OBJECT_TYPE) {
+				for (IClass<?> interf : c.interfaces()) {
+					if (interf == superMethod.owner()) {
+						found = true;
+						c = interf;
+						break t;
+					}
 				}
-			}
 
-			code.assign(code.getThis(), stack(owner));
-			for (int in = 0; in < superMethod.parameters().size(); in++) {
-				code.assign(args, stack(OBJECT_TYPE.asArray()));
-				code.loadConstant(stack(INT_TYPE), in);
-				code.arrayGet(stack(OBJECT_TYPE.asArray()), stack(INT_TYPE), stack(OBJECT_TYPE));
-				code.cast(stack(OBJECT_TYPE), stack(superMethod.parameters().get(in).getType()));
+				c = c.superClass();
 			}
 
-			if (superMethod.returnType() != VOID_TYPE) {
-				code.invokeSuper(stack(owner), superMethod, stack(OBJECT_TYPE), stack(OBJECT_TYPE));
-				code.returnValue(stack(OBJECT_TYPE));
-			} else {
-				code.invokeSuper(stack(owner), superMethod, null, stack(OBJECT_TYPE));
-				code.loadConstant(stack(OBJECT_TYPE), null);
-				code.returnValue(stack(OBJECT_TYPE));
+			if (found) {
+				c.getMethod(
+						superMethod.returnType(),
+						superMethod.name(),
+						superMethod.parameters().stream().map(ParameterInfo::getType).toArray(IClass[]::new)
+				);
 			}
 		}
+
+		code.assign(code.getThis(), stack(owner));
+		for (int in = 0; in < superMethod.parameters().size(); in++) {
+			code.assign(args, stack(OBJECT_TYPE.asArray()));
+			code.loadConstant(stack(INT_TYPE), in);
+			code.arrayGet(stack(OBJECT_TYPE.asArray()), stack(INT_TYPE), stack(OBJECT_TYPE));
+			code.cast(stack(OBJECT_TYPE), stack(superMethod.parameters().get(in).getType()));
+		}
+
+		if (superMethod.returnType() != VOID_TYPE) {
+			code.invokeSuper(stack(owner), superMethod, stack(OBJECT_TYPE), stack(OBJECT_TYPE));
+			code.returnValue(stack(OBJECT_TYPE));
+		} else {
+			code.invokeSuper(stack(owner), superMethod, null, stack(OBJECT_TYPE));
+			code.loadConstant(stack(OBJECT_TYPE), null);
+			code.returnValue(stack(OBJECT_TYPE));
+		}
 	}
 
 	/**
@@ -1388,6 +2383,117 @@ public abstract class DynamicMaker {
 		}
 	}
 
+	/** A dynamic type to be generated by {@link DynamicMaker#generateAll(List, Supplier, ByteClassLoader, ForkJoinPool)}. */
+	public static class TypeDeclaration {
+		final Class<?> base;
+		final Class<?>[] interfaces;
+		final Class<?>[] aspects;
+
+		/**
+		 * @param base       The base class
+		 * @param interfaces The interfaces implemented by the type
+		 * @param aspects    The aspect interfaces, null for the full delegation
+		 */
+		public TypeDeclaration(Class<?> base, Class<?>[] interfaces, Class<?>[] aspects) {
+			this.base = base;
+			this.interfaces = interfaces;
+			this.aspects = aspects;
+		}
+	}
+
+	private static class Batched {
+		final int index;
+		final ClassImplements<?> key;
+		final Class<?> handled;
+		final String cacheKey;
+
+		final GenerationMetrics.Recording recording;
+
+		ClassInfo<?> classInfo;
+		byte[] byteCode;
+
+		Batched(int index, ClassImplements<?> key, Class<?> handled, String cacheKey, GenerationMetrics.Recording recording) {
+			this.index = index;
+			this.key = key;
+			this.handled = handled;
+			this.cacheKey = cacheKey;
+			this.recording = recording;
+		}
+	}
+
+	/**
+	 * The reference of a method of the delegated type, resolved by the handle helper when the function is called the first
+	 * time, so that a pool only accesses the methods actually called.
+	 */
+	private static class LazyMethodEntry implements IFunctionEntry {
+		final JavaHandleHelper helper;
+		final Method method;
+		final FunctionType type;
+
+		volatile IFunctionEntry resolved;
+
+		LazyMethodEntry(JavaHandleHelper helper, Method method) {
+			this.helper = helper;
+			this.method = method;
+			this.type = FunctionType.inst(method);
+		}
+
+		@Override
+		public String getName() {
+			return method.getName();
+		}
+
+		@Override
+		public <S, R> Function<S, R> getFunc() {
+			IFunctionEntry res = resolved;
+			if (res == null) resolved = res = helper.getJavaMethodReference(method);
+
+			return res.getFunc();
+		}
+
+		@Override
+		public FunctionType getType() {
+			return type;
+		}
+	}
+
+	/**
+	 * A running generation of a dynamic type, records the generating thread to detect a re-entrant generation of the same type,
+	 * and the options it was started with.
+	 */
+	private static class Generation extends FutureTask<Class<?>> {
+		final Thread owner = Thread.currentThread();
+		final Settings options;
+
+		Generation(Settings options, Callable<Class<?>> callable) {
+			super(callable);
+			this.options = options;
+		}
+	}
+
+	/** The immutable snapshot of the options of the generated classes, see {@link DynamicMaker#settings}. */
+	private static class Settings {
+		final DispatchMode dispatchMode;
+		final VariableLayout variableLayout;
+		final StubGeneration stubGeneration;
+		final BytecodeCache bytecodeCache;
+
+		Settings(DispatchMode dispatchMode, VariableLayout variableLayout, StubGeneration stubGeneration, BytecodeCache bytecodeCache) {
+			this.dispatchMode = dispatchMode;
+			this.variableLayout = variableLayout;
+			this.stubGeneration = stubGeneration;
+			this.bytecodeCache = bytecodeCache;
+		}
+	}
+
+	/** The scratch state used while building the type identifier of a class, each generation has its own, so classes can be built in parallel. */
+	private static class Scratch {
+		final Map<String, Set<FunctionType>> overrides = new HashMap<>();
+		final Map<String, Set<FunctionType>> finals = new HashMap<>();
+		final Set<Class<?>> interfaceTemp = new HashSet<>();
+		final Stack<Class<?>> interfaceStack = new Stack<>();
+	}
+
 	/**
 	 * 动态委托类型标识，由此工厂生成的动态委托类型都会具有此注解标识
 	 */
@@ -1407,4 +2513,51 @@ public abstract class DynamicMaker {
 	public interface SuperInvoker {
 		Object invokeSuper(String signature, Object... args);
 	}
+
+	/** The way the generated dynamic methods dispatch the calls to the functions in the data pool. */
+	public enum DispatchMode {
+		/** Call the function through a static {@link InlineCache} of each method, this is the default mode. */
+		INLINE_CACHE,
+		/**
+		 * Call the function through an {@code invokedynamic} instruction linked by {@link DynamicCallSite}, the
+		 * selected function is bound into the call site so that the JIT is able to inline it.
+		 */
+		INVOKE_DYNAMIC
+	}
+
+	/** The way the generated dynamic classes store the values of the variables of the instances. */
+	public enum VariableLayout {
+		/** Each instance stores the variables in its own {@link HashMap}, this is the default layout. */
+		HASH_MAP,
+		/**
+		 * The generated class is specialized for each dynamic class, the variables declared by the dynamic class
+		 * (and its super classes) when the class is generated become fields of the generated class, see {@link FieldLayout}.
+		 * Variables declared with a primitive field type are stored in primitive fields, other variables are stored
+		 * in {@code Object} fields. A map is only allocated for the variables that are added later.
+		 */
+		FIELDS,
+		/**
+		 * Each instance points to an immutable {@link Shape} that maps variable names to the indices of a slot array
+		 * held by the instance, adding a variable transits the instance to a cached child shape. The generated class
+		 * is shared by all dynamic classes like the {@link VariableLayout#HASH_MAP} layout.
+		 */
+		SHAPE
+	}
+
+	/** The way the generated dynamic classes choose the methods of the base class to override. */
+	public enum StubGeneration {
+		/** Every overridable method of the base class and the interfaces is overridden, this is the default mode. */
+		ALL,
+		/**
+		 * Only the abstract methods and the methods named by a function declared in the dynamic class (and its super
+		 * classes) are overridden, the other methods are left to the base class, so the generated class and its static
+		 * initializer are kept small for the base classes with lots of methods. The generated class is shared by the
+		 * dynamic classes declaring the same function names, if the functions of a dynamic class are changed, a class
+		 * overriding the new methods is generated for the instances created afterward.
+		 * <p>If a method is not overridden by the class of an instance, calling the method on the instance does not reach the
+		 * functions added to the dynamic class afterward or set by {@link DynamicObject#setFunc(String, Function, Class[])},
+		 * such functions are still reachable by {@link DynamicObject#invokeFunc(String, Object...)}.
+		 */
+		DECLARED
+	}
 }
@@ -7,7 +7,8 @@ package dynamilize;
  * through {@link DynamicMaker#makeClassInfo(Class, Class[], Class[])}. The implementation classes
  * generated by the generator should satisfy the following behaviors:
  * <ul>
- * <li>Assign a field to save the {@linkplain DataPool data pool} object, which has a private final modifier
+ * <li>Assign a field to save the {@linkplain DataPool data pool} object, which has a protected final modifier,
+ * the dynamic methods generated in the subclasses read the pool from it
  * <li>Assign objects to save fields of the {@linkplain DynamicClass dynamic class}, which have the private final modifier
  * <li>Generate a corresponding constructor for each superclass constructor, and correctly call the
  * corresponding superclass constructor of the superclass. Add two new parameters before the
@@ -61,7 +62,7 @@ public interface DynamicObject<S> {
 	default <T> T getVar(String name) {
 		IVariable var = getVariable(name);
 		if (var == null)
-			throw new IllegalHandleException("variable " + name + " was not defined");
+			throw FlightEvents.noSuchVariable(name);
 
 		return var.get(this);
 	}
@@ -114,23 +115,17 @@ public interface DynamicObject<S> {
 	default <R> Delegate<R> getFunction(String name, FunctionType type) {
 		IFunctionEntry entry = getFunc(name, type);
 		if (entry == null)
-			throw new IllegalHandleException("no such function: " + name + type);
+			throw FlightEvents.noSuchFunction(name, type);
 
 		return a -> (R) entry.<S, R>getFunc().invoke(this, a);
 	}
 
 	default <R> Delegate<R> getFunction(String name, Class<?>... types) {
-		FunctionType type = FunctionType.inst(types);
-		Delegate<R> f = getFunction(name, type);
-		type.recycle();
-		return f;
+		return getFunction(name, FunctionType.inst(types));
 	}
 
 	default <R> Function<S, R> getFunc(String name, Class<?>... types) {
-		FunctionType type = FunctionType.inst(types);
-		Function<S, R> f = getFunc(name, type).getFunc();
-		type.recycle();
-		return f;
+		return getFunc(name, FunctionType.inst(types)).getFunc();
 	}
 
 	/**
@@ -185,7 +180,6 @@ public interface DynamicObject<S> {
 	default <R> R invokeFunc(String name, Object... args) {
 		ArgumentList lis = ArgumentList.as(args);
 		R r = invokeFunc(name, lis);
-		lis.type().recycle();
 		lis.recycle();
 		return r;
 	}
@@ -217,12 +211,12 @@ public interface DynamicObject<S> {
 	 */
 	default <R> R invokeFunc(String name, ArgumentList args) {
 		FunctionType type = args.type();
-		Function<S, R> res = getFunc(name, type).getFunc();
+		IFunctionEntry res = getFunc(name, type);
 
 		if (res == null)
-			throw new IllegalHandleException("no such method declared: " + name);
+			throw FlightEvents.noSuchFunction(name, type);
 
-		return res.invoke(this, args);
+		return res.<S, R>getFunc().invoke(this, args);
 	}
 
 	/** Perform a strong transformation on the object itself and return it */
@@ -235,7 +229,7 @@ public interface DynamicObject<S> {
 	default boolean getVar(String name, boolean def) {
 		IVariable variable = getVariable(name);
 		if (variable == null)
-			throw new IllegalHandleException("variable " + name + " was not defined");
+			throw FlightEvents.noSuchVariable(name);
 
 		return variable.get(this, def);
 	}
@@ -243,7 +237,7 @@ public interface DynamicObject<S> {
 	default byte getVar(String name, byte def) {
 		IVariable variable = getVariable(name);
 		if (variable == null)
-			throw new IllegalHandleException("variable " + name + " was not defined");
+			throw FlightEvents.noSuchVariable(name);
 
 		return variable.get(this, def);
 	}
@@ -251,7 +245,7 @@ public interface DynamicObject<S> {
 	default short getVar(String name, short def) {
 		IVariable variable = getVariable(name);
 		if (variable == null)
-			throw new IllegalHandleException("variable " + name + " was not defined");
+			throw FlightEvents.noSuchVariable(name);
 
 		return variable.get(this, def);
 	}
@@ -259,7 +253,7 @@ public interface DynamicObject<S> {
 	default int getVar(String name, int def) {
 		IVariable variable = getVariable(name);
 		if (variable == null)
-			throw new IllegalHandleException("variable " + name + " was not defined");
+			throw FlightEvents.noSuchVariable(name);
 
 		return variable.get(this, def);
 	}
@@ -267,7 +261,7 @@ public interface DynamicObject<S> {
 	default long getVar(String name, long def) {
 		IVariable variable = getVariable(name);
 		if (variable == null)
-			throw new IllegalHandleException("variable " + name + " was not defined");
+			throw FlightEvents.noSuchVariable(name);
 
 		return variable.get(this, def);
 	}
@@ -275,7 +269,7 @@ public interface DynamicObject<S> {
 	default float getVar(String name, float def) {
 		IVariable variable = getVariable(name);
 		if (variable == null)
-			throw new IllegalHandleException("variable " + name + " was not defined");
+			throw FlightEvents.noSuchVariable(name);
 
 		return variable.get(this, def);
 	}
@@ -283,7 +277,7 @@ public interface DynamicObject<S> {
 	default double getVar(String name, double def) {
 		IVariable variable = getVariable(name);
 		if (variable == null)
-			throw new IllegalHandleException("variable " + name + " was not defined");
+			throw FlightEvents.noSuchVariable(name);
 
 		return variable.get(this, def);
 	}
@@ -0,0 +1,343 @@
+package dynamilize;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The layout of the variables stored in the fields of a dynamic class, which is generated in the
+ * {@link DynamicMaker.VariableLayout#FIELDS} mode. Each variable declared by the dynamic class when the class was
+ * generated has a {@linkplain Slot slot} mapping to a real field of the class, the variables added later are stored
+ * in the overflow map of the instance, the map will be created when the first such variable was set.
+ * <p>The layout of a class is resolved from the fields declared by it, for the classes that do not store variables
+ * in fields, the layout is empty. The fields are private to the generated class, they are accessed through a
+ * {@linkplain MethodHandles#privateLookupIn(Class, MethodHandles.Lookup) private lookup} of the class declaring them.
+ * <p><strong>The static methods of this type are referenced by the generated code, generally you should not use them anywhere else.</strong>
+ *
+ * @author EBwilson
+ */
+public class FieldLayout {
+	/** The prefix of the names of the fields that store variables. */
+	public static final String FIELD_PREFIX = "$var$";
+	/** The name of the field that stores the overflow map of variables. */
+	public static final String OVERFLOW_FIELD = "$varValuePool$";
+
+	private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, DynamicObject.class);
+	private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, DynamicObject.class, Object.class);
+
+	private static final ClassValue<FieldLayout> LAYOUTS = new ClassValue<>() {
+		@Override
+		protected FieldLayout computeValue(Class<?> type) {
+			return resolve(type);
+		}
+	};
+
+	private final Map<String, Slot> slots;
+	private final MethodHandle overflowGetter;
+	private final MethodHandle overflowSetter;
+
+	private FieldLayout(Map<String, Slot> slots, MethodHandle overflowGetter, MethodHandle overflowSetter) {
+		this.slots = slots;
+		this.overflowGetter = overflowGetter;
+		this.overflowSetter = overflowSetter;
+	}
+
+	/**
+	 * Get the variable layout of the given class.
+	 *
+	 * @param type The class of the dynamic objects
+	 * @return The layout of the class, it is empty if the class does not store variables in fields
+	 */
+	public static FieldLayout of(Class<?> type) {
+		return LAYOUTS.get(type);
+	}
+
+	/**
+	 * Read the value of a variable from the given object, the generated {@code varValueGet} method delegates to this.
+	 *
+	 * @param self The object
+	 * @param name variable name
+	 * @return The value of the variable, or null if it was never set
+	 */
+	public static Object get(DynamicObject<?> self, String name) {
+		FieldLayout layout = of(self.getClass());
+		Slot slot = layout.slots.get(name);
+		if (slot != null) return slot.get(self);
+
+		HashMap<String, Object> overflow = layout.overflow(self, false);
+		return overflow == null ? null : overflow.get(name);
+	}
+
+	/**
+	 * Write the value of a variable to the given object, the generated {@code varValueSet} method delegates to this.
+	 *
+	 * @param self  The object
+	 * @param name  variable name
+	 * @param value The value to set
+	 */
+	public static void set(DynamicObject<?> self, String name, Object value) {
+		FieldLayout layout = of(self.getClass());
+		Slot slot = layout.slots.get(name);
+		if (slot != null) {
+			slot.set(self, value);
+			return;
+		}
+
+		layout.overflow(self, true).put(name, value);
+	}
+
+	/**
+	 * Get the slot of the variable with the given name.
+	 *
+	 * @param name variable name
+	 * @return The slot of the variable, or null if the variable is not stored in a field
+	 */
+	public Slot slot(String name) {
+		return slots.get(name);
+	}
+
+	public Collection<Slot> slots() {
+		return Collections.unmodifiableCollection(slots.values());
+	}
+
+	public boolean isEmpty() {
+		return slots.isEmpty();
+	}
+
+	@SuppressWarnings("unchecked")
+	private HashMap<String, Object> overflow(DynamicObject<?> self, boolean create) {
+		if (overflowGetter == null)
+			throw new IllegalHandleException("class " + self.getClass() + " does not store variables in fields");
+
+		try {
+			HashMap<String, Object> res = (HashMap<String, Object>) overflowGetter.invokeExact(self);
+			if (res == null && create) {
+				res = new HashMap<>();
+				overflowSetter.invokeExact(self, res);
+			}
+			return res;
+		} catch (Throwable e) {
+			throw new IllegalHandleException(e);
+		}
+	}
+
+	private static FieldLayout resolve(Class<?> type) {
+		HashMap<String, Slot> slots = new HashMap<>();
+		MethodHandle overflowGetter = null, overflowSetter = null;
+
+		try {
+			for (Class<?> curr = type; curr != null; curr = curr.getSuperclass()) {
+				MethodHandles.Lookup lookup = null;
+				for (Field field : curr.getDeclaredFields()) {
+					int mod = field.getModifiers();
+					if (Modifier.isStatic(mod) || Modifier.isFinal(mod)) continue;
+
+					// the final map of the classes not in FIELDS layout is not an overflow
+					boolean overflow = field.getName().equals(OVERFLOW_FIELD) && field.getType() == HashMap.class;
+					if (!overflow && !field.getName().startsWith(FIELD_PREFIX)) continue;
+					if (lookup == null) lookup = MethodHandles.privateLookupIn(curr, MethodHandles.lookup());
+
+					if (overflow) {
+						if (overflowGetter != null) continue;
+
+						overflowGetter = lookup.unreflectGetter(field).asType(MethodType.methodType(HashMap.class, DynamicObject.class));
+						overflowSetter = lookup.unreflectSetter(field).asType(MethodType.methodType(void.class, DynamicObject.class, HashMap.class));
+					} else if (field.getName().startsWith(FIELD_PREFIX)) {
+						String name = field.getName().substring(FIELD_PREFIX.length());
+						if (slots.containsKey(name)) continue;
+
+						slots.put(name, new Slot(name, field.getType(), lookup.unreflectGetter(field), lookup.unreflectSetter(field)));
+					}
+				}
+			}
+		} catch (IllegalAccessException e) {
+			throw new IllegalHandleException(e);
+		}
+
+		return new FieldLayout(slots, overflowGetter, overflowSetter);
+	}
+
+	/**
+	 * The slot of a variable stored in a field, a slot accesses the field through method handles. The typed
+	 * accessors can only be used when the field has the same primitive type.
+	 */
+	public static class Slot {
+		private final String name;
+		private final Class<?> type;
+
+		private final MethodHandle getter;
+		private final MethodHandle setter;
+		private final MethodHandle typedGetter;
+		private final MethodHandle typedSetter;
+
+		private Slot(String name, Class<?> type, MethodHandle getter, MethodHandle setter) {
+			this.name = name;
+			this.type = type;
+
+			this.getter = getter.asType(GETTER_TYPE);
+			this.setter = setter.asType(SETTER_TYPE);
+			this.typedGetter = getter.asType(MethodType.methodType(type, DynamicObject.class));
+			this.typedSetter = setter.asType(MethodType.methodType(void.class, DynamicObject.class, type));
+		}
+
+		public String name() {
+			return name;
+		}
+
+		public Class<?> type() {
+			return type;
+		}
+
+		public Object get(DynamicObject<?> self) {
+			try {
+				return getter.invokeExact(self);
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		public void set(DynamicObject<?> self, Object value) {
+			try {
+				setter.invokeExact(self, value);
+			} catch (ClassCastException | NullPointerException e) {
+				throw new IllegalHandleException("variable " + name + " was typed " + type + ", cannot assign " + value + " to it");
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		public boolean getBoolean(DynamicObject<?> self) {
+			try {
+				return (boolean) typedGetter.invokeExact(self);
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		public byte getByte(DynamicObject<?> self) {
+			try {
+				return (byte) typedGetter.invokeExact(self);
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		public short getShort(DynamicObject<?> self) {
+			try {
+				return (short) typedGetter.invokeExact(self);
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		public int getInt(DynamicObject<?> self) {
+			try {
+				return (int) typedGetter.invokeExact(self);
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		public long getLong(DynamicObject<?> self) {
+			try {
+				return (long) typedGetter.invokeExact(self);
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		public float getFloat(DynamicObject<?> self) {
+			try {
+				return (float) typedGetter.invokeExact(self);
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		public double getDouble(DynamicObject<?> self) {
+			try {
+				return (double) typedGetter.invokeExact(self);
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		public char getChar(DynamicObject<?> self) {
+			try {
+				return (char) typedGetter.invokeExact(self);
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		public void setBoolean(DynamicObject<?> self, boolean value) {
+			try {
+				typedSetter.invokeExact(self, value);
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		public void setByte(DynamicObject<?> self, byte value) {
+			try {
+				typedSetter.invokeExact(self, value);
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		public void setShort(DynamicObject<?> self, short value) {
+			try {
+				typedSetter.invokeExact(self, value);
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		public void setInt(DynamicObject<?> self, int value) {
+			try {
+				typedSetter.invokeExact(self, value);
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		public void setLong(DynamicObject<?> self, long value) {
+			try {
+				typedSetter.invokeExact(self, value);
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		public void setFloat(DynamicObject<?> self, float value) {
+			try {
+				typedSetter.invokeExact(self, value);
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		public void setDouble(DynamicObject<?> self, double value) {
+			try {
+				typedSetter.invokeExact(self, value);
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+
+		public void setChar(DynamicObject<?> self, char value) {
+			try {
+				typedSetter.invokeExact(self, value);
+			} catch (Throwable e) {
+				throw new IllegalHandleException(e);
+			}
+		}
+	}
+}
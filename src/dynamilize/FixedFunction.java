@@ -0,0 +1,248 @@
+package dynamilize;
+
+/**
+ * The function that receives a fixed count of arguments directly, the calls from the generated dynamic methods with
+ * the same count of parameters do not pack the arguments into an array or an {@link ArgumentList}, so the invocation
+ * does not allocate once the JIT has warmed up (primitive arguments are still boxed).
+ * <p>Create the function by the {@code of} factories with a lambda of the corresponding arity, and set it like
+ * any other function, for example:
+ * <pre>{@code
+ * dynamicClass.setFunction("update", FixedFunction.<Entity, Float, Object>of((self, delta) -> {
+ *     self.setVar("time", self.getVar("time", 0f) + delta);
+ *     return null;
+ * }), float.class);
+ * }</pre>
+ * The function can still be invoked with an {@link ArgumentList} by any other way, the count of the arguments must
+ * be the same as the arity of the function.
+ *
+ * @author EBwilson
+ */
+public abstract class FixedFunction<S, R> implements Function<S, R> {
+	/** The max count of the parameters of the functions that can be called with fixed arguments. */
+	public static final int MAX_ARITY = 6;
+
+	private final int arity;
+
+	protected FixedFunction(int arity) {
+		this.arity = arity;
+	}
+
+	/** Get the count of the arguments this function receives. */
+	public int arity() {
+		return arity;
+	}
+
+	protected void checkArity(ArgumentList args) {
+		if (args.args().length != arity)
+			throw new IllegalHandleException("function requires " + arity + " arguments, but " + args.args().length + " were given");
+	}
+
+	public static <S, R> FixedFunction<S, R> of(Arity0<S, R> func) {
+		return new Of0<>(func);
+	}
+
+	public static <S, A0, R> FixedFunction<S, R> of(Arity1<S, A0, R> func) {
+		return new Of1<>(func);
+	}
+
+	public static <S, A0, A1, R> FixedFunction<S, R> of(Arity2<S, A0, A1, R> func) {
+		return new Of2<>(func);
+	}
+
+	public static <S, A0, A1, A2, R> FixedFunction<S, R> of(Arity3<S, A0, A1, A2, R> func) {
+		return new Of3<>(func);
+	}
+
+	public static <S, A0, A1, A2, A3, R> FixedFunction<S, R> of(Arity4<S, A0, A1, A2, A3, R> func) {
+		return new Of4<>(func);
+	}
+
+	public static <S, A0, A1, A2, A3, A4, R> FixedFunction<S, R> of(Arity5<S, A0, A1, A2, A3, A4, R> func) {
+		return new Of5<>(func);
+	}
+
+	public static <S, A0, A1, A2, A3, A4, A5, R> FixedFunction<S, R> of(Arity6<S, A0, A1, A2, A3, A4, A5, R> func) {
+		return new Of6<>(func);
+	}
+
+	@FunctionalInterface
+	public interface Arity0<S, R> {
+		R invoke(DynamicObject<S> self);
+	}
+
+	@FunctionalInterface
+	public interface Arity1<S, A0, R> {
+		R invoke(DynamicObject<S> self, A0 a0);
+	}
+
+	@FunctionalInterface
+	public interface Arity2<S, A0, A1, R> {
+		R invoke(DynamicObject<S> self, A0 a0, A1 a1);
+	}
+
+	@FunctionalInterface
+	public interface Arity3<S, A0, A1, A2, R> {
+		R invoke(DynamicObject<S> self, A0 a0, A1 a1, A2 a2);
+	}
+
+	@FunctionalInterface
+	public interface Arity4<S, A0, A1, A2, A3, R> {
+		R invoke(DynamicObject<S> self, A0 a0, A1 a1, A2 a2, A3 a3);
+	}
+
+	@FunctionalInterface
+	public interface Arity5<S, A0, A1, A2, A3, A4, R> {
+		R invoke(DynamicObject<S> self, A0 a0, A1 a1, A2 a2, A3 a3, A4 a4);
+	}
+
+	@FunctionalInterface
+	public interface Arity6<S, A0, A1, A2, A3, A4, A5, R> {
+		R invoke(DynamicObject<S> self, A0 a0, A1 a1, A2 a2, A3 a3, A4 a4, A5 a5);
+	}
+
+	private static class Of0<S, R> extends FixedFunction<S, R> {
+		private final Arity0<S, R> func;
+
+		Of0(Arity0<S, R> func) {
+			super(0);
+			this.func = func;
+		}
+
+		@Override
+		public R invoke(DynamicObject<S> self, ArgumentList args) {
+			checkArity(args);
+			return func.invoke(self);
+		}
+
+		@Override
+		public R call(DynamicObject<S> self, FunctionType type) {
+			return func.invoke(self);
+		}
+	}
+
+	private static class Of1<S, A0, R> extends FixedFunction<S, R> {
+		private final Arity1<S, A0, R> func;
+
+		Of1(Arity1<S, A0, R> func) {
+			super(1);
+			this.func = func;
+		}
+
+		@Override
+		public R invoke(DynamicObject<S> self, ArgumentList args) {
+			checkArity(args);
+			return func.invoke(self, args.get(0));
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public R call(DynamicObject<S> self, FunctionType type, Object a0) {
+			return func.invoke(self, (A0) a0);
+		}
+	}
+
+	private static class Of2<S, A0, A1, R> extends FixedFunction<S, R> {
+		private final Arity2<S, A0, A1, R> func;
+
+		Of2(Arity2<S, A0, A1, R> func) {
+			super(2);
+			this.func = func;
+		}
+
+		@Override
+		public R invoke(DynamicObject<S> self, ArgumentList args) {
+			checkArity(args);
+			return func.invoke(self, args.get(0), args.get(1));
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public R call(DynamicObject<S> self, FunctionType type, Object a0, Object a1) {
+			return func.invoke(self, (A0) a0, (A1) a1);
+		}
+	}
+
+	private static class Of3<S, A0, A1, A2, R> extends FixedFunction<S, R> {
+		private final Arity3<S, A0, A1, A2, R> func;
+
+		Of3(Arity3<S, A0, A1, A2, R> func) {
+			super(3);
+			this.func = func;
+		}
+
+		@Override
+		public R invoke(DynamicObject<S> self, ArgumentList args) {
+			checkArity(args);
+			return func.invoke(self, args.get(0), args.get(1), args.get(2));
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public R call(DynamicObject<S> self, FunctionType type, Object a0, Object a1, Object a2) {
+			return func.invoke(self, (A0) a0, (A1) a1, (A2) a2);
+		}
+	}
+
+	private static class Of4<S, A0, A1, A2, A3, R> extends FixedFunction<S, R> {
+		private final Arity4<S, A0, A1, A2, A3, R> func;
+
+		Of4(Arity4<S, A0, A1, A2, A3, R> func) {
+			super(4);
+			this.func = func;
+		}
+
+		@Override
+		public R invoke(DynamicObject<S> self, ArgumentList args) {
+			checkArity(args);
+			return func.invoke(self, args.get(0), args.get(1), args.get(2), args.get(3));
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public R call(DynamicObject<S> self, FunctionType type, Object a0, Object a1, Object a2, Object a3) {
+			return func.invoke(self, (A0) a0, (A1) a1, (A2) a2, (A3) a3);
+		}
+	}
+
+	private static class Of5<S, A0, A1, A2, A3, A4, R> extends FixedFunction<S, R> {
+		private final Arity5<S, A0, A1, A2, A3, A4, R> func;
+
+		Of5(Arity5<S, A0, A1, A2, A3, A4, R> func) {
+			super(5);
+			this.func = func;
+		}
+
+		@Override
+		public R invoke(DynamicObject<S> self, ArgumentList args) {
+			checkArity(args);
+			return func.invoke(self, args.get(0), args.get(1), args.get(2), args.get(3), args.get(4));
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public R call(DynamicObject<S> self, FunctionType type, Object a0, Object a1, Object a2, Object a3, Object a4) {
+			return func.invoke(self, (A0) a0, (A1) a1, (A2) a2, (A3) a3, (A4) a4);
+		}
+	}
+
+	private static class Of6<S, A0, A1, A2, A3, A4, A5, R> extends FixedFunction<S, R> {
+		private final Arity6<S, A0, A1, A2, A3, A4, A5, R> func;
+
+		Of6(Arity6<S, A0, A1, A2, A3, A4, A5, R> func) {
+			super(6);
+			this.func = func;
+		}
+
+		@Override
+		public R invoke(DynamicObject<S> self, ArgumentList args) {
+			checkArity(args);
+			return func.invoke(self, args.get(0), args.get(1), args.get(2), args.get(3), args.get(4), args.get(5));
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public R call(DynamicObject<S> self, FunctionType type, Object a0, Object a1, Object a2, Object a3, Object a4, Object a5) {
+			return func.invoke(self, (A0) a0, (A1) a1, (A2) a2, (A3) a3, (A4) a4, (A5) a5);
+		}
+	}
+}
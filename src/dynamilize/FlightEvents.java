@@ -0,0 +1,148 @@
+package dynamilize;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The Java Flight Recorder events of the dynamic types, they can be recorded continuously to correlate the latency with
+ * the activities of the dynamic types. All events are in the category {@code Dynamilize} and named {@code dynamilize.*}:
+ * <ul>
+ *   <li>{@code dynamilize.Generation}: a dynamic type not in the cache of the factory was generated or loaded</li>
+ *   <li>{@code dynamilize.LookupTableRebuild}: the flattened function table of a data pool was rebuilt after the functions changed</li>
+ *   <li>{@code dynamilize.Resolution}: a function was selected from a data pool by matching the assignable types</li>
+ *   <li>{@code dynamilize.LookupFailure}: a function or a variable was not found, an {@link IllegalHandleException} is thrown then</li>
+ *   <li>{@code dynamilize.PoolUnderflow}, {@code dynamilize.PoolOverflow}: a pool of a thread was empty when obtaining an
+ *   object, or was full when recycling an object, the underflow of {@code FunctionType} means a
+ *   type was not in the intern table and was created</li>
+ * </ul>
+ * The events cost nothing but a check of whether they are enabled when no recording is running. The pool events are
+ * recorded without the stack trace since they may be frequent.
+ *
+ * @author EBwilson
+ */
+final class FlightEvents {
+	private FlightEvents() {}
+
+	static IllegalHandleException noSuchFunction(String name, FunctionType type) {
+		String message = "no such function: " + name + type;
+		lookupFailed("function", name, message);
+		return new IllegalHandleException(message);
+	}
+
+	static IllegalHandleException noSuchVariable(String name) {
+		String message = "variable " + name + " was not defined";
+		lookupFailed("variable", name, message);
+		return new IllegalHandleException(message);
+	}
+
+	private static void lookupFailed(String kind, String name, String message) {
+		LookupFailure event = new LookupFailure();
+		if (!event.shouldCommit()) return;
+
+		event.kind = kind;
+		event.member = name;
+		event.message = message;
+		event.commit();
+	}
+
+	static void underflow(String pool) {
+		PoolUnderflow event = new PoolUnderflow();
+		if (!event.shouldCommit()) return;
+
+		event.pool = pool;
+		event.commit();
+	}
+
+	static void overflow(String pool, int capacity) {
+		PoolOverflow event = new PoolOverflow();
+		if (!event.shouldCommit()) return;
+
+		event.pool = pool;
+		event.capacity = capacity;
+		event.commit();
+	}
+
+	@Name("dynamilize.Generation")
+	@Label("Dynamic Type Generation")
+	@Category("Dynamilize")
+	@Description("A dynamic type not in the cache of the factory was generated or loaded")
+	static final class Generation extends Event {
+		@Label("Base Class")
+		Class<?> base;
+		@Label("Dynamic Type")
+		Class<?> type;
+		@Label("Source")
+		String source;
+		@Label("Bytecode Size")
+		@DataAmount
+		int byteCodeSize;
+		@Label("Method Count")
+		int methodCount;
+	}
+
+	@Name("dynamilize.LookupTableRebuild")
+	@Label("Lookup Table Rebuild")
+	@Category("Dynamilize")
+	@Description("The flattened function table of a data pool was rebuilt after the functions in its hierarchy changed")
+	static final class LookupTableRebuild extends Event {
+		@Label("Owner")
+		String owner;
+		@Label("Function Names")
+		int names;
+	}
+
+	@Name("dynamilize.Resolution")
+	@Label("Function Resolution")
+	@Category("Dynamilize")
+	@Description("A function was selected from a data pool by matching the assignable types, the result is memoized")
+	static final class Resolution extends Event {
+		@Label("Function")
+		String function;
+		@Label("Argument Types")
+		String argumentTypes;
+		@Label("Matched")
+		boolean matched;
+		@Label("Candidates")
+		int candidates;
+	}
+
+	@Name("dynamilize.LookupFailure")
+	@Label("Lookup Failure")
+	@Category("Dynamilize")
+	@Description("A function or a variable was not found")
+	static final class LookupFailure extends Event {
+		@Label("Kind")
+		String kind;
+		@Label("Member")
+		String member;
+		@Label("Message")
+		String message;
+	}
+
+	@Name("dynamilize.PoolUnderflow")
+	@Label("Pool Underflow")
+	@Category("Dynamilize")
+	@Description("A pool of a thread was empty when obtaining an object, a new object was allocated, or a function type was not interned yet")
+	@StackTrace(false)
+	static final class PoolUnderflow extends Event {
+		@Label("Pool")
+		String pool;
+	}
+
+	@Name("dynamilize.PoolOverflow")
+	@Label("Pool Overflow")
+	@Category("Dynamilize")
+	@Description("A pool of a thread was full when recycling an object, the object was dropped")
+	@StackTrace(false)
+	static final class PoolOverflow extends Event {
+		@Label("Pool")
+		String pool;
+		@Label("Capacity")
+		int capacity;
+	}
+}
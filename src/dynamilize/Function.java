@@ -7,7 +7,6 @@ public interface Function<S, R> {
 	default R invoke(DynamicObject<S> self, Object... args) {
 		ArgumentList lis = ArgumentList.as(args);
 		R r = invoke(self, lis);
-		lis.type().recycle();
 		lis.recycle();
 		return r;
 	}
@@ -19,6 +18,87 @@ public interface Function<S, R> {
 		return r;
 	}
 
+	/**
+	 * Invoke this function with a fixed count of arguments, the generated dynamic methods that have no more than
+	 * {@link FixedFunction#MAX_ARITY} parameters call functions through these methods. By default, the arguments are
+	 * packed into a pooled argument list, the {@link FixedFunction} overrides them to receive the arguments directly.
+	 *
+	 * @param self The dynamic object that the function invoke on
+	 * @param type The formal parameter type of the invoked function
+	 */
+	default R call(DynamicObject<S> self, FunctionType type) {
+		return invoke(self, type, ArgumentList.EMP_ARG);
+	}
+
+	/** @see Function#call(DynamicObject, FunctionType) */
+	default R call(DynamicObject<S> self, FunctionType type, Object a0) {
+		Object[] args = ArgumentList.getList(1);
+		args[0] = a0;
+		R r = invoke(self, type, args);
+		ArgumentList.recycleList(args);
+		return r;
+	}
+
+	/** @see Function#call(DynamicObject, FunctionType) */
+	default R call(DynamicObject<S> self, FunctionType type, Object a0, Object a1) {
+		Object[] args = ArgumentList.getList(2);
+		args[0] = a0;
+		args[1] = a1;
+		R r = invoke(self, type, args);
+		ArgumentList.recycleList(args);
+		return r;
+	}
+
+	/** @see Function#call(DynamicObject, FunctionType) */
+	default R call(DynamicObject<S> self, FunctionType type, Object a0, Object a1, Object a2) {
+		Object[] args = ArgumentList.getList(3);
+		args[0] = a0;
+		args[1] = a1;
+		args[2] = a2;
+		R r = invoke(self, type, args);
+		ArgumentList.recycleList(args);
+		return r;
+	}
+
+	/** @see Function#call(DynamicObject, FunctionType) */
+	default R call(DynamicObject<S> self, FunctionType type, Object a0, Object a1, Object a2, Object a3) {
+		Object[] args = ArgumentList.getList(4);
+		args[0] = a0;
+		args[1] = a1;
+		args[2] = a2;
+		args[3] = a3;
+		R r = invoke(self, type, args);
+		ArgumentList.recycleList(args);
+		return r;
+	}
+
+	/** @see Function#call(DynamicObject, FunctionType) */
+	default R call(DynamicObject<S> self, FunctionType type, Object a0, Object a1, Object a2, Object a3, Object a4) {
+		Object[] args = ArgumentList.getList(5);
+		args[0] = a0;
+		args[1] = a1;
+		args[2] = a2;
+		args[3] = a3;
+		args[4] = a4;
+		R r = invoke(self, type, args);
+		ArgumentList.recycleList(args);
+		return r;
+	}
+
+	/** @see Function#call(DynamicObject, FunctionType) */
+	default R call(DynamicObject<S> self, FunctionType type, Object a0, Object a1, Object a2, Object a3, Object a4, Object a5) {
+		Object[] args = ArgumentList.getList(6);
+		args[0] = a0;
+		args[1] = a1;
+		args[2] = a2;
+		args[3] = a3;
+		args[4] = a4;
+		args[5] = a5;
+		R r = invoke(self, type, args);
+		ArgumentList.recycleList(args);
+		return r;
+	}
+
 	@FunctionalInterface
 	interface NonRetFunction<S> {
 		void invoke(DynamicObject<S> self, ArgumentList args);
@@ -14,12 +14,7 @@ public class FunctionEntry<S, R> implements IFunctionEntry {
 	public FunctionEntry(String name, Function.SuperGetFunction<S, R> func, FunctionType type, DataPool owner) {
 		this(
 				name,
-				(s, a) -> {
-					DataPool.ReadOnlyPool p = owner.getSuper(s, s.baseSuperPointer());
-					R res = func.invoke(s, p, a);
-					p.recycle();
-					return res;
-				},
+				(s, a) -> func.invoke(s, owner.getSuper(s, s.baseSuperPointer()), a),
 				type
 		);
 	}
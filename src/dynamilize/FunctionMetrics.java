@@ -0,0 +1,294 @@
+package dynamilize;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The opt-in instrumentation of the dynamic functions, it records the invocations and the resolutions of each function
+ * to a {@link FunctionSink}. The instrumentation is disabled by default, the functions are selected and invoked as usual then,
+ * and the only cost is a check of the installed sink when a function is selected from a data pool.
+ * <p>After a sink is {@linkplain FunctionMetrics#install(FunctionSink) installed}, the function entries selected from the data
+ * pools are wrapped with the timing of the invocations, the cached selections of all call sites are invalidated, so
+ * the calls after the installation are all recorded. The {@linkplain PrimitiveFunction specialized functions} are
+ * called through the boxed path while they are instrumented.
+ * <p>This type is also the default sink, it keeps a {@link FunctionStats} for each function, which can be read
+ * directly or through JMX after the metrics is {@linkplain FunctionMetrics#register(String) registered}, for example:
+ * <pre>{@code
+ * FunctionMetrics metrics = new FunctionMetrics();
+ * metrics.register("app");
+ * FunctionMetrics.install(metrics);
+ * }</pre>
+ *
+ * @author EBwilson
+ */
+public class FunctionMetrics implements FunctionMetricsMXBean, FunctionSink {
+	/** The installed sink, null if the instrumentation is disabled. It is read on each selection of the functions. */
+	static volatile FunctionSink sink;
+
+	private final ConcurrentHashMap<String, FunctionStats> stats = new ConcurrentHashMap<>();
+
+	private ObjectName registered;
+
+	/**
+	 * Install a sink and enable the instrumentation, the previously installed sink will be replaced.
+	 *
+	 * @param sink The sink receiving the records of the functions
+	 */
+	public static void install(FunctionSink sink) {
+		if (sink == null)
+			throw new IllegalHandleException("sink can not be null");
+
+		FunctionMetrics.sink = sink;
+		DataPool.invalidateAll();
+	}
+
+	/** Uninstall the sink and disable the instrumentation, the cached instrumented functions are invalidated. */
+	public static void uninstall() {
+		if (sink == null) return;
+
+		sink = null;
+		DataPool.invalidateAll();
+	}
+
+	/** Get the installed sink, or null if the instrumentation is disabled. */
+	public static FunctionSink installed() {
+		return sink;
+	}
+
+	/**
+	 * Wrap a function entry with the instrumentation of a sink.
+	 *
+	 * @param owner The name of the dynamic class or the Java class declaring the function
+	 */
+	static Instrumented instrument(IFunctionEntry entry, String owner, FunctionSink sink) {
+		return new Instrumented(entry, sink.recorder(owner, entry.getName(), entry.getType()));
+	}
+
+	@Override
+	public FunctionSink.Recorder recorder(String owner, String name, FunctionType type) {
+		return stats.computeIfAbsent(owner + "." + FunctionType.signature(name, type), k -> new FunctionStats(owner, name, type));
+	}
+
+	/** Get the statistics of all recorded functions. */
+	public List<FunctionStats> getStats() {
+		return new ArrayList<>(stats.values());
+	}
+
+	/**
+	 * Get the statistics of a function.
+	 *
+	 * @param owner The name of the dynamic class or the Java class declaring the function
+	 * @return The statistics, or null if the function is not recorded
+	 */
+	public FunctionStats getStats(String owner, String name, FunctionType type) {
+		return stats.get(owner + "." + FunctionType.signature(name, type));
+	}
+
+	/**
+	 * Register this metrics to the platform MBean server, with the object name {@code dynamilize:type=FunctionMetrics,name=<name>}.
+	 *
+	 * @param name The name distinguishing the metrics
+	 * @return The object name of this metrics
+	 * @throws IllegalHandleException If this metrics has been registered, or the name is invalid or used
+	 */
+	public synchronized ObjectName register(String name) {
+		if (registered != null)
+			throw new IllegalHandleException("metrics has been registered as " + registered);
+
+		try {
+			ObjectName objectName = new ObjectName("dynamilize:type=FunctionMetrics,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+
+			return registered = objectName;
+		} catch (JMException e) {
+			throw new IllegalHandleException(e);
+		}
+	}
+
+	/** Unregister this metrics from the platform MBean server if it was registered. */
+	public synchronized void unregister() {
+		if (registered == null) return;
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(registered);
+		} catch (JMException e) {
+			throw new IllegalHandleException(e);
+		} finally {
+			registered = null;
+		}
+	}
+
+	@Override
+	public boolean isInstalled() {
+		return sink == this;
+	}
+
+	@Override
+	public int getFunctionCount() {
+		return stats.size();
+	}
+
+	@Override
+	public long getInvocationCount() {
+		return stats.values().stream().mapToLong(FunctionStats::getInvocations).sum();
+	}
+
+	@Override
+	public long getExactResolutions() {
+		return stats.values().stream().mapToLong(FunctionStats::getExactResolutions).sum();
+	}
+
+	@Override
+	public long getFuzzyResolutions() {
+		return stats.values().stream().mapToLong(FunctionStats::getFuzzyResolutions).sum();
+	}
+
+	@Override
+	public String[] hottestFunctions(int count) {
+		return stats.values().stream()
+				.sorted(Comparator.comparingLong(FunctionStats::getInvocations).reversed())
+				.limit(Math.max(count, 0))
+				.map(FunctionStats::toString)
+				.toArray(String[]::new);
+	}
+
+	@Override
+	public String[] slowestFunctions(int count) {
+		return stats.values().stream()
+				.sorted(Comparator.comparingLong((FunctionStats s) -> s.getLatency().percentile(99)).reversed())
+				.limit(Math.max(count, 0))
+				.map(FunctionStats::toString)
+				.toArray(String[]::new);
+	}
+
+	@Override
+	public void reset() {
+		for (FunctionStats s : stats.values()) {
+			s.reset();
+		}
+	}
+
+	/** The function entry wrapped with the instrumentation, its function records the time of each invocation. */
+	static final class Instrumented implements IFunctionEntry {
+		final IFunctionEntry entry;
+		final FunctionSink.Recorder recorder;
+		private final Function<Object, Object> function;
+
+		Instrumented(IFunctionEntry entry, FunctionSink.Recorder recorder) {
+			this.entry = entry;
+			this.recorder = recorder;
+			this.function = new Timed(entry.getFunc(), recorder);
+		}
+
+		@Override
+		public String getName() {
+			return entry.getName();
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <S, R> Function<S, R> getFunc() {
+			return (Function<S, R>) (Function<?, ?>) function;
+		}
+
+		@Override
+		public FunctionType getType() {
+			return entry.getType();
+		}
+	}
+
+	private static final class Timed implements Function<Object, Object> {
+		private final Function<Object, Object> function;
+		private final FunctionSink.Recorder recorder;
+
+		Timed(Function<Object, Object> function, FunctionSink.Recorder recorder) {
+			this.function = function;
+			this.recorder = recorder;
+		}
+
+		@Override
+		public Object invoke(DynamicObject<Object> self, ArgumentList args) {
+			long start = System.nanoTime();
+			try {
+				return function.invoke(self, args);
+			} finally {
+				recorder.invoked(System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public Object call(DynamicObject<Object> self, FunctionType type) {
+			long start = System.nanoTime();
+			try {
+				return function.call(self, type);
+			} finally {
+				recorder.invoked(System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public Object call(DynamicObject<Object> self, FunctionType type, Object a0) {
+			long start = System.nanoTime();
+			try {
+				return function.call(self, type, a0);
+			} finally {
+				recorder.invoked(System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public Object call(DynamicObject<Object> self, FunctionType type, Object a0, Object a1) {
+			long start = System.nanoTime();
+			try {
+				return function.call(self, type, a0, a1);
+			} finally {
+				recorder.invoked(System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public Object call(DynamicObject<Object> self, FunctionType type, Object a0, Object a1, Object a2) {
+			long start = System.nanoTime();
+			try {
+				return function.call(self, type, a0, a1, a2);
+			} finally {
+				recorder.invoked(System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public Object call(DynamicObject<Object> self, FunctionType type, Object a0, Object a1, Object a2, Object a3) {
+			long start = System.nanoTime();
+			try {
+				return function.call(self, type, a0, a1, a2, a3);
+			} finally {
+				recorder.invoked(System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public Object call(DynamicObject<Object> self, FunctionType type, Object a0, Object a1, Object a2, Object a3, Object a4) {
+			long start = System.nanoTime();
+			try {
+				return function.call(self, type, a0, a1, a2, a3, a4);
+			} finally {
+				recorder.invoked(System.nanoTime() - start);
+			}
+		}
+
+		@Override
+		public Object call(DynamicObject<Object> self, FunctionType type, Object a0, Object a1, Object a2, Object a3, Object a4, Object a5) {
+			long start = System.nanoTime();
+			try {
+				return function.call(self, type, a0, a1, a2, a3, a4, a5);
+			} finally {
+				recorder.invoked(System.nanoTime() - start);
+			}
+		}
+	}
+}
@@ -0,0 +1,42 @@
+package dynamilize;
+
+/**
+ * The management interface of the {@linkplain FunctionMetrics function metrics}.
+ *
+ * @author EBwilson
+ */
+public interface FunctionMetricsMXBean {
+	/** Get whether the function metrics is installed currently, see {@link FunctionMetrics#install(FunctionSink)}. */
+	boolean isInstalled();
+
+	/** Get the count of the recorded functions. */
+	int getFunctionCount();
+
+	/** Get the total count of the invocations of all recorded functions. */
+	long getInvocationCount();
+
+	/** Get the total count of the exact resolutions of all recorded functions. */
+	long getExactResolutions();
+
+	/** Get the total count of the fuzzy resolutions of all recorded functions. */
+	long getFuzzyResolutions();
+
+	/**
+	 * Describe the most invoked functions.
+	 *
+	 * @param count The max count of the returned functions
+	 * @return The descriptions of the functions, in the descending order of the invocation count
+	 */
+	String[] hottestFunctions(int count);
+
+	/**
+	 * Describe the functions with the highest 99th percentile latency.
+	 *
+	 * @param count The max count of the returned functions
+	 * @return The descriptions of the functions, in the descending order of the latency
+	 */
+	String[] slowestFunctions(int count);
+
+	/** Clear the statistics of all recorded functions. */
+	void reset();
+}
@@ -0,0 +1,37 @@
+package dynamilize;
+
+/**
+ * The receiver of the records of the instrumented functions, it could forward the records to any metrics system.
+ * The sink is enabled by {@link FunctionMetrics#install(FunctionSink)}, and {@link FunctionMetrics} is the default one.
+ *
+ * @author EBwilson
+ */
+@FunctionalInterface
+public interface FunctionSink {
+	/**
+	 * Create the recorder of a function, it is called once for each selected function entry after the sink is
+	 * installed, and the recorder is called on each invocation of the function, from any thread.
+	 *
+	 * @param owner The name of the dynamic class or the Java class declaring the function
+	 * @param name  The name of the function
+	 * @param type  The type of the function
+	 */
+	Recorder recorder(String owner, String name, FunctionType type);
+
+	/** The recorder of a function, the methods are called concurrently and should not block. */
+	interface Recorder {
+		/**
+		 * Record an invocation of the function.
+		 *
+		 * @param nanos The time spent in the function in nanoseconds
+		 */
+		void invoked(long nanos);
+
+		/**
+		 * Record a selection of the function from a data pool.
+		 *
+		 * @param exact Whether the function is selected by the identical type, otherwise by the assignable types
+		 */
+		void resolved(boolean exact);
+	}
+}
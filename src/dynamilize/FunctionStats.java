@@ -0,0 +1,98 @@
+package dynamilize;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The invocation statistics of a function, recorded by the {@linkplain FunctionMetrics default metrics sink}. A function
+ * is identified by the dynamic class (or the Java class) declaring it, its name and its {@linkplain FunctionType type}.
+ * <p>The resolution counts are counted each time the function is selected from a data pool, that is usually when a call
+ * site misses its cache, the exact resolutions are the selections matched by the identical type, the fuzzy resolutions
+ * are matched by the assignable types.
+ *
+ * @author EBwilson
+ */
+public final class FunctionStats implements FunctionSink.Recorder {
+	private final String owner;
+	private final String name;
+	private final FunctionType type;
+
+	private final LongAdder invocations = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAdder exact = new LongAdder();
+	private final LongAdder fuzzy = new LongAdder();
+	private final LatencyHistogram latency = new LatencyHistogram();
+
+	FunctionStats(String owner, String name, FunctionType type) {
+		this.owner = owner;
+		this.name = name;
+		this.type = type;
+	}
+
+	@Override
+	public void invoked(long nanos) {
+		invocations.increment();
+		totalNanos.add(nanos);
+		latency.record(nanos);
+	}
+
+	@Override
+	public void resolved(boolean exact) {
+		(exact ? this.exact : fuzzy).increment();
+	}
+
+	/** Get the name of the dynamic class or the Java class declaring the function. */
+	public String getOwner() {
+		return owner;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public FunctionType getType() {
+		return type;
+	}
+
+	public long getInvocations() {
+		return invocations.sum();
+	}
+
+	/** Get the total time spent in the function in nanoseconds, including the functions called by it. */
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	public long getExactResolutions() {
+		return exact.sum();
+	}
+
+	public long getFuzzyResolutions() {
+		return fuzzy.sum();
+	}
+
+	/** Get the histogram of the latencies of the invocations. */
+	public LatencyHistogram getLatency() {
+		return latency;
+	}
+
+	void reset() {
+		invocations.reset();
+		totalNanos.reset();
+		exact.reset();
+		fuzzy.reset();
+		latency.reset();
+	}
+
+	@Override
+	public String toString() {
+		long count = getInvocations();
+		return owner + "." + FunctionType.signature(name, type)
+				+ " calls: " + count
+				+ ", exact: " + getExactResolutions()
+				+ ", fuzzy: " + getFuzzyResolutions()
+				+ ", mean: " + (count == 0 ? 0 : getTotalNanos() / count) + "ns"
+				+ ", p50: " + latency.percentile(50) + "ns"
+				+ ", p99: " + latency.percentile(99) + "ns"
+				+ ", max: " + latency.max() + "ns";
+	}
+}
@@ -3,35 +3,33 @@ package dynamilize;
 import dynamilize.classmaker.ClassInfo;
 
 import java.lang.invoke.MethodType;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.Executable;
 import java.lang.reflect.Method;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Stack;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Function type encapsulates objects, recording the parameter types of functions for comparison and
  * search.
+ * <p>Function types are immutable and interned, there is only one instance for each parameter type vector, so
+ * two function types are equal only if they are the same object. The intern table holds the instances weakly,
+ * the types no longer referenced will be removed from the table.
  *
  * @author EBwilson
  */
-public class FunctionType {
-	/**
-	 * Reuse the recycling area capacity, changing the value usually does not require setting, but if you
-	 * may need large-scale recursion or a large number of concurrent calls, you may need to set this limit
-	 * to a higher value.
-	 */
-	public static int MAX_RECYCLE = 4096;
+public final class FunctionType {
+	private static final ConcurrentHashMap<Object, Interned> INTERNED = new ConcurrentHashMap<>();
+	private static final ReferenceQueue<FunctionType> STALE = new ReferenceQueue<>();
 
-	private static final Class<?>[] EMPTY = new Class[0];
-	private static final Stack<FunctionType> RECYCLE_POOL = new Stack<>();
+	private final Class<?>[] paramType;
+	private final int hash;
 
-	private Class<?>[] paramType;
-	private int hash;
-
-	private FunctionType(Class<?>... paramType) {
+	private FunctionType(Class<?>[] paramType, int hash) {
 		this.paramType = paramType;
-		hash = Arrays.hashCode(paramType);
+		this.hash = hash;
 	}
 
 	/**
@@ -82,12 +80,40 @@ public class FunctionType {
 		return inst(paramType.toArray(new Class[0]));
 	}
 
-	public static synchronized FunctionType inst(Class<?>... paramType) {
-		if (RECYCLE_POOL.isEmpty()) return new FunctionType(paramType);
-		FunctionType res = RECYCLE_POOL.pop();
-		res.paramType = paramType;
-		res.hash = Arrays.hashCode(paramType);
-		return res;
+	/**
+	 * Get the canonical function type of the given parameter types.
+	 *
+	 * @param paramType The parameter types, the array will not be retained
+	 * @return The interned function type
+	 */
+	public static FunctionType inst(Class<?>... paramType) {
+		int hash = Arrays.hashCode(paramType);
+		Interned ref = INTERNED.get(new Probe(paramType, hash));
+		FunctionType res = ref == null ? null : ref.get();
+		if (res != null) return res;
+
+		expungeStale();
+		FlightEvents.underflow("FunctionType");
+
+		res = new FunctionType(paramType.length == 0 ? paramType : paramType.clone(), hash);
+		Interned created = new Interned(res);
+		while (true) {
+			Interned exists = INTERNED.putIfAbsent(created, created);
+			if (exists == null) return res;
+
+			FunctionType other = exists.get();
+			if (other != null) return other;
+
+			// the existing one was cleared but not expunged yet
+			INTERNED.remove(exists, exists);
+		}
+	}
+
+	private static void expungeStale() {
+		Object ref;
+		while ((ref = STALE.poll()) != null) {
+			INTERNED.remove(ref, ref);
+		}
 	}
 
 	public static FunctionType inst(Method method) {
@@ -119,7 +145,7 @@ public class FunctionType {
 	}
 
 	public static FunctionType inst(FunctionType type) {
-		return inst(type.paramType);
+		return type;
 	}
 
 	public static FunctionType from(MethodType type) {
@@ -169,21 +195,22 @@ public class FunctionType {
 		return true;
 	}
 
+	/** Get the parameter types, <strong>the returned array must not be modified</strong>. */
 	public Class<?>[] getTypes() {
 		return paramType;
 	}
 
-	public void recycle() {
-		if (RECYCLE_POOL.size() >= MAX_RECYCLE) return;
-
-		paramType = EMPTY;
-		hash = -1;
-		RECYCLE_POOL.push(this);
-	}
+	/**
+	 * Function types are interned and immutable now, they need not be recycled.
+	 *
+	 * @deprecated This method does nothing
+	 */
+	@Deprecated
+	public void recycle() {}
 
 	@Override
 	public boolean equals(Object obj) {
-		return this == obj || obj instanceof FunctionType that && paramType.length == that.paramType.length && hashCode() == obj.hashCode();
+		return this == obj;
 	}
 
 	@Override
@@ -204,4 +231,52 @@ public class FunctionType {
 
 		return builder.toString();
 	}
+
+	/** The weak reference to an interned function type, it is also the key of the intern table. */
+	private static class Interned extends WeakReference<FunctionType> {
+		final int hash;
+
+		Interned(FunctionType type) {
+			super(type, STALE);
+			hash = type.hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) return true;
+			if (!(obj instanceof Interned that) || hash != that.hash) return false;
+
+			FunctionType type = get(), other = that.get();
+			return type != null && other != null && Arrays.equals(type.paramType, other.paramType);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+
+	/** The lookup key of the intern table, equal to the reference of a function type with the same parameter types. */
+	private static class Probe {
+		final Class<?>[] types;
+		final int hash;
+
+		Probe(Class<?>[] types, int hash) {
+			this.types = types;
+			this.hash = hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Interned ref) || hash != ref.hash) return false;
+
+			FunctionType type = ref.get();
+			return type != null && Arrays.equals(types, type.paramType);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
 }
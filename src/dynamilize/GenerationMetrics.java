@@ -0,0 +1,243 @@
+package dynamilize;
+
+import dynamilize.classmaker.GenerationObserver;
+import dynamilize.classmaker.code.IClass;
+import dynamilize.classmaker.code.IMethod;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The metrics of the dynamic types obtained by a {@link DynamicMaker}, see {@link DynamicMaker#getMetrics()}.
+ * <p>Every dynamic type that is not in the cache of the factory is recorded as a {@link GenerationStats} with the time
+ * spent in each stage of the generation, the records are passed to the {@linkplain GenerationMetrics#addListener(Listener) listeners}
+ * and the most recent ones are kept. The counters can also be read through JMX after the metrics is
+ * {@linkplain GenerationMetrics#register(String) registered} to the platform MBean server.
+ *
+ * @author EBwilson
+ */
+public class GenerationMetrics implements GenerationMetricsMXBean {
+	/** The max count of the records kept by a metrics, the oldest records are dropped. */
+	public static int MAX_RECORDS = 1024;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder generated = new LongAdder();
+	private final LongAdder irNanos = new LongAdder();
+	private final LongAdder byteCodeNanos = new LongAdder();
+	private final LongAdder defineNanos = new LongAdder();
+	private final LongAdder totalNanos = new LongAdder();
+	private final LongAdder byteCodeSize = new LongAdder();
+
+	private final ConcurrentLinkedQueue<GenerationStats> records = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger recordCount = new AtomicInteger();
+	private final CopyOnWriteArrayList<Listener> listeners = new CopyOnWriteArrayList<>();
+
+	private ObjectName registered;
+
+	/** Add a listener called with the record of each dynamic type that is not in the cache, on the thread obtaining the type. */
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/** Get the kept records, in the order they are recorded. */
+	public List<GenerationStats> getRecords() {
+		return new ArrayList<>(records);
+	}
+
+	/**
+	 * Register this metrics to the platform MBean server, with the object name {@code dynamilize:type=GenerationMetrics,name=<name>}.
+	 *
+	 * @param name The name distinguishing the factory
+	 * @return The object name of this metrics
+	 * @throws IllegalHandleException If this metrics has been registered, or the name is invalid or used
+	 */
+	public synchronized ObjectName register(String name) {
+		if (registered != null)
+			throw new IllegalHandleException("metrics has been registered as " + registered);
+
+		try {
+			ObjectName objectName = new ObjectName("dynamilize:type=GenerationMetrics,name=" + ObjectName.quote(name));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+
+			return registered = objectName;
+		} catch (JMException e) {
+			throw new IllegalHandleException(e);
+		}
+	}
+
+	/** Unregister this metrics from the platform MBean server if it was registered. */
+	public synchronized void unregister() {
+		if (registered == null) return;
+
+		try {
+			ManagementFactory.getPlatformMBeanServer().unregisterMBean(registered);
+		} catch (JMException e) {
+			throw new IllegalHandleException(e);
+		} finally {
+			registered = null;
+		}
+	}
+
+	@Override
+	public long getCacheHits() {
+		return hits.sum();
+	}
+
+	@Override
+	public long getCacheMisses() {
+		return misses.sum();
+	}
+
+	@Override
+	public long getGeneratedCount() {
+		return generated.sum();
+	}
+
+	@Override
+	public long getIrNanos() {
+		return irNanos.sum();
+	}
+
+	@Override
+	public long getByteCodeNanos() {
+		return byteCodeNanos.sum();
+	}
+
+	@Override
+	public long getDefineNanos() {
+		return defineNanos.sum();
+	}
+
+	@Override
+	public long getTotalNanos() {
+		return totalNanos.sum();
+	}
+
+	@Override
+	public long getByteCodeSize() {
+		return byteCodeSize.sum();
+	}
+
+	@Override
+	public String[] slowestTypes(int count) {
+		return records.stream()
+				.sorted(Comparator.comparingLong(GenerationStats::getTotalNanos).reversed())
+				.limit(Math.max(count, 0))
+				.map(GenerationStats::toString)
+				.toArray(String[]::new);
+	}
+
+	@Override
+	public void reset() {
+		hits.reset();
+		misses.reset();
+		generated.reset();
+		irNanos.reset();
+		byteCodeNanos.reset();
+		defineNanos.reset();
+		totalNanos.reset();
+		byteCodeSize.reset();
+		records.clear();
+		recordCount.set(0);
+	}
+
+	void hit() {
+		hits.increment();
+	}
+
+	/** Start recording a dynamic type that is not in the cache, the recording should be {@linkplain dynamilize.classmaker.AbstractClassGenerator#observe(GenerationObserver) observing} the generation. */
+	Recording begin(Class<?> base) {
+		misses.increment();
+		return new Recording(base);
+	}
+
+	void record(GenerationStats stats) {
+		if (stats.getSource() == GenerationStats.Source.GENERATED) generated.increment();
+		irNanos.add(stats.getIrNanos());
+		byteCodeNanos.add(stats.getByteCodeNanos());
+		defineNanos.add(stats.getDefineNanos());
+		totalNanos.add(stats.getTotalNanos());
+		byteCodeSize.add(stats.getByteCodeSize());
+
+		records.add(stats);
+		if (recordCount.incrementAndGet() > MAX_RECORDS && records.poll() != null) recordCount.decrementAndGet();
+
+		for (Listener listener : listeners) {
+			listener.generated(stats);
+		}
+	}
+
+	/** The listener of the {@linkplain GenerationStats records} of the dynamic types. */
+	@FunctionalInterface
+	public interface Listener {
+		void generated(GenerationStats stats);
+	}
+
+	/** The observer accumulating the cost of a dynamic type, the size and the method count are taken from the first built type identifier. */
+	final class Recording implements GenerationObserver {
+		final Class<?> base;
+		final long start = System.nanoTime();
+		final FlightEvents.Generation event = new FlightEvents.Generation();
+
+		String name;
+		long ir, byteCode, define;
+		int size, methods;
+
+		Recording(Class<?> base) {
+			this.base = base;
+			event.begin();
+		}
+
+		@Override
+		public void classInfoBuilt(IClass<?> clazz, long nanos) {
+			ir += nanos;
+			if (name != null) return;
+
+			name = clazz.name();
+			methods = (int) clazz.elements().stream().filter(e -> e instanceof IMethod<?, ?>).count();
+		}
+
+		@Override
+		public void byteCodeGenerated(IClass<?> clazz, byte[] code, long nanos) {
+			byteCode += nanos;
+			if (clazz.name().equals(name)) size = code.length;
+		}
+
+		@Override
+		public void classDefined(IClass<?> clazz, Class<?> type, long nanos) {
+			define += nanos;
+		}
+
+		/** Finish the recording with the obtained type, the source is inferred from the observed stages. */
+		void finish(Class<?> type) {
+			GenerationStats.Source source = name != null ? GenerationStats.Source.GENERATED : GenerationStats.Source.BYTECODE_CACHE;
+			finish(type, source);
+		}
+
+		void finish(Class<?> type, GenerationStats.Source source) {
+			record(new GenerationStats(base, type, source, ir, byteCode, define, System.nanoTime() - start, size, methods));
+
+			if (event.shouldCommit()) {
+				event.base = base;
+				event.type = type;
+				event.source = source.name();
+				event.byteCodeSize = size;
+				event.methodCount = methods;
+				event.commit();
+			}
+		}
+	}
+}
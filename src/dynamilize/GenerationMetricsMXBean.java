@@ -0,0 +1,43 @@
+package dynamilize;
+
+/**
+ * The management interface of the {@linkplain GenerationMetrics generation metrics} of a {@link DynamicMaker}.
+ *
+ * @author EBwilson
+ */
+public interface GenerationMetricsMXBean {
+	/** Get the count of the dynamic types obtained from the cache of the factory. */
+	long getCacheHits();
+
+	/** Get the count of the dynamic types that are not in the cache of the factory, each of them was generated or loaded. */
+	long getCacheMisses();
+
+	/** Get the count of the dynamic types generated at runtime. */
+	long getGeneratedCount();
+
+	/** Get the total time spent building the type identifiers in nanoseconds. */
+	long getIrNanos();
+
+	/** Get the total time spent generating the bytecode in nanoseconds. */
+	long getByteCodeNanos();
+
+	/** Get the total time spent defining and loading the classes in nanoseconds. */
+	long getDefineNanos();
+
+	/** Get the total time spent obtaining the dynamic types that are not in the cache in nanoseconds. */
+	long getTotalNanos();
+
+	/** Get the total size of the bytecode of the generated dynamic types. */
+	long getByteCodeSize();
+
+	/**
+	 * Describe the recorded dynamic types that took the longest time to obtain.
+	 *
+	 * @param count The max count of the returned types
+	 * @return The descriptions of the types, in the descending order of the time
+	 */
+	String[] slowestTypes(int count);
+
+	/** Clear all counters and records. */
+	void reset();
+}
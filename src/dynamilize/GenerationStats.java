@@ -0,0 +1,96 @@
+package dynamilize;
+
+/**
+ * The cost of obtaining a dynamic type generated by a {@link DynamicMaker}, recorded by its {@linkplain GenerationMetrics metrics}.
+ * <p>The time of each stage includes all of the classes generated in the stage, for example the classes generated to
+ * access the package private members of the base class. The bytecode size and the method count are only of the dynamic type.
+ *
+ * @author EBwilson
+ */
+public final class GenerationStats {
+	private final Class<?> base;
+	private final Class<?> type;
+	private final Source source;
+	private final long irNanos;
+	private final long byteCodeNanos;
+	private final long defineNanos;
+	private final long totalNanos;
+	private final int byteCodeSize;
+	private final int methodCount;
+
+	GenerationStats(Class<?> base, Class<?> type, Source source, long irNanos, long byteCodeNanos, long defineNanos, long totalNanos, int byteCodeSize, int methodCount) {
+		this.base = base;
+		this.type = type;
+		this.source = source;
+		this.irNanos = irNanos;
+		this.byteCodeNanos = byteCodeNanos;
+		this.defineNanos = defineNanos;
+		this.totalNanos = totalNanos;
+		this.byteCodeSize = byteCodeSize;
+		this.methodCount = methodCount;
+	}
+
+	/** Get the base class of the dynamic type. */
+	public Class<?> getBase() {
+		return base;
+	}
+
+	/** Get the dynamic type. */
+	public Class<?> getType() {
+		return type;
+	}
+
+	/** Get where the dynamic type comes from. */
+	public Source getSource() {
+		return source;
+	}
+
+	/** Get the time spent building the type identifiers in nanoseconds, 0 if the type is not generated. */
+	public long getIrNanos() {
+		return irNanos;
+	}
+
+	/** Get the time spent generating the bytecode in nanoseconds, 0 if the type is not generated. */
+	public long getByteCodeNanos() {
+		return byteCodeNanos;
+	}
+
+	/** Get the time spent defining and loading the generated classes in nanoseconds. */
+	public long getDefineNanos() {
+		return defineNanos;
+	}
+
+	/** Get the time spent obtaining the dynamic type in nanoseconds, including all of the stages and the base class handling. */
+	public long getTotalNanos() {
+		return totalNanos;
+	}
+
+	/** Get the size of the bytecode of the dynamic type, 0 if the type is not generated. */
+	public int getByteCodeSize() {
+		return byteCodeSize;
+	}
+
+	/** Get the count of the methods declared by the dynamic type, including the constructors and the static initializer, 0 if the type is not generated. */
+	public int getMethodCount() {
+		return methodCount;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s (%s, %s): total %.3fms, ir %.3fms, bytecode %.3fms, define %.3fms, %d bytes, %d methods",
+				type.getName(), base.getName(), source,
+				totalNanos / 1e6, irNanos / 1e6, byteCodeNanos / 1e6, defineNanos / 1e6,
+				byteCodeSize, methodCount
+		);
+	}
+
+	/** Where a dynamic type comes from. */
+	public enum Source {
+		/** The type is generated at runtime. */
+		GENERATED,
+		/** The type is {@linkplain AotGenerator pre-generated} at build time. */
+		PREGENERATED,
+		/** The type is loaded from the {@linkplain dynamilize.classmaker.BytecodeCache bytecode cache}. */
+		BYTECODE_CACHE
+	}
+}
@@ -2,15 +2,33 @@ package dynamilize;
 
 public class Initializer<T> {
 	private final Producer<T> init;
+	private final Class<?> type;
 
 	public Initializer(Producer<T> init) {
+		this(init, null);
+	}
+
+	/**
+	 * Create an initializer with the declared type of the initial value, the type can be used by the factory
+	 * to determine how to store the variable, such as a typed field in {@link DynamicMaker.VariableLayout#FIELDS} mode.
+	 *
+	 * @param init The producer of the initial value
+	 * @param type The declared type of the initial value, null if unknown
+	 */
+	public Initializer(Producer<T> init, Class<?> type) {
 		this.init = init;
+		this.type = type;
 	}
 
 	public Object getInit() {
 		return init.get();
 	}
 
+	/** Get the declared type of the initial value, or null if it is unknown. */
+	public Class<?> getType() {
+		return type;
+	}
+
 	public interface Producer<T> {
 		T get();
 	}
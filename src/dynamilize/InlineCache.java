@@ -0,0 +1,214 @@
+package dynamilize;
+
+/**
+ * The inline cache of a call site in the generated dynamic methods, it records the function entries selected
+ * for the data pools passing through this call site, so that the call in steady state does not need to walk
+ * the whole pool hierarchy to select the function again.
+ * <p>The cache entries are keyed on the resolution identity of the pool rather than the pool itself: for a pool
+ * that has no functions declared by itself (that is the common case of an instance pool), the result of the
+ * selection only depends on its parent pool and fallback pool, so instances of the same dynamic class share
+ * the entry. Each entry records the {@linkplain DataPool#version() versions} of the pools it is keyed on when it
+ * was built, a function change only outdates the entries keyed on the changed hierarchy. A pool that declares
+ * functions by itself is not cached, the function is selected from it on each call, so the call site never holds
+ * a reference to an instance pool.
+ * <p>A call site holds at most {@link InlineCache#MAX_POLYMORPHIC} entries, if more pool identities pass
+ * through it, the call site will become megamorphic and select the function from the pool directly on each call
+ * missing the entries, until any of the entries is outdated.
+ * <p><strong>This type is referenced by the generated code, generally you should not use it anywhere else.</strong>
+ *
+ * @author EBwilson
+ */
+public class InlineCache {
+	/** The max count of entries held by a call site before it becomes megamorphic. */
+	public static int MAX_POLYMORPHIC = 4;
+
+	private final String name;
+	private final FunctionType type;
+
+	private volatile Entry head;
+	private volatile boolean megamorphic;
+
+	public InlineCache(String name, FunctionType type) {
+		this.name = name;
+		this.type = type;
+	}
+
+	/**
+	 * Invoke the function of this call site on the given dynamic object.
+	 *
+	 * @param self The dynamic object that the function invoke on
+	 * @param pool The data pool of the object
+	 * @param args Actual parameter list
+	 * @return function return value
+	 * @throws IllegalHandleException If no function can be selected from the pool
+	 */
+	@SuppressWarnings("unchecked")
+	public Object invoke(DynamicObject<?> self, DataPool pool, Object[] args) {
+		Function<Object, Object> func = select(pool).getFunc();
+
+		ArgumentList lis = ArgumentList.asWithType(type, args);
+		Object res = func.invoke((DynamicObject<Object>) self, lis);
+		lis.recycle();
+		return res;
+	}
+
+	/**
+	 * Call the function of this call site on the given dynamic object with a fixed count of arguments, the generated
+	 * methods that have no more than {@link FixedFunction#MAX_ARITY} parameters call these methods, the arguments are not
+	 * packed into an array.
+	 *
+	 * @param self The dynamic object that the function invoke on
+	 * @param pool The data pool of the object
+	 * @return function return value
+	 * @throws IllegalHandleException If no function can be selected from the pool
+	 * @see Function#call(DynamicObject, FunctionType)
+	 */
+	@SuppressWarnings("unchecked")
+	public Object call(DynamicObject<?> self, DataPool pool) {
+		return select(pool).<Object, Object>getFunc().call((DynamicObject<Object>) self, type);
+	}
+
+	/** @see InlineCache#call(DynamicObject, DataPool) */
+	@SuppressWarnings("unchecked")
+	public Object call(DynamicObject<?> self, DataPool pool, Object a0) {
+		return select(pool).<Object, Object>getFunc().call((DynamicObject<Object>) self, type, a0);
+	}
+
+	/** @see InlineCache#call(DynamicObject, DataPool) */
+	@SuppressWarnings("unchecked")
+	public Object call(DynamicObject<?> self, DataPool pool, Object a0, Object a1) {
+		return select(pool).<Object, Object>getFunc().call((DynamicObject<Object>) self, type, a0, a1);
+	}
+
+	/** @see InlineCache#call(DynamicObject, DataPool) */
+	@SuppressWarnings("unchecked")
+	public Object call(DynamicObject<?> self, DataPool pool, Object a0, Object a1, Object a2) {
+		return select(pool).<Object, Object>getFunc().call((DynamicObject<Object>) self, type, a0, a1, a2);
+	}
+
+	/** @see InlineCache#call(DynamicObject, DataPool) */
+	@SuppressWarnings("unchecked")
+	public Object call(DynamicObject<?> self, DataPool pool, Object a0, Object a1, Object a2, Object a3) {
+		return select(pool).<Object, Object>getFunc().call((DynamicObject<Object>) self, type, a0, a1, a2, a3);
+	}
+
+	/** @see InlineCache#call(DynamicObject, DataPool) */
+	@SuppressWarnings("unchecked")
+	public Object call(DynamicObject<?> self, DataPool pool, Object a0, Object a1, Object a2, Object a3, Object a4) {
+		return select(pool).<Object, Object>getFunc().call((DynamicObject<Object>) self, type, a0, a1, a2, a3, a4);
+	}
+
+	/** @see InlineCache#call(DynamicObject, DataPool) */
+	@SuppressWarnings("unchecked")
+	public Object call(DynamicObject<?> self, DataPool pool, Object a0, Object a1, Object a2, Object a3, Object a4, Object a5) {
+		return select(pool).<Object, Object>getFunc().call((DynamicObject<Object>) self, type, a0, a1, a2, a3, a4, a5);
+	}
+
+	/**
+	 * Select the function entry of this call site from the given pool, use the cached entry if it is still valid.
+	 *
+	 * @param pool The data pool of the object
+	 * @return The selected function entry
+	 * @throws IllegalHandleException If no function can be selected from the pool
+	 */
+	public IFunctionEntry select(DataPool pool) {
+		for (Entry e = head; e != null; e = e.next) {
+			if (e.matches(pool)) return e.entry;
+		}
+
+		Entry key = pool.modCount != 0 || (megamorphic && !hasOutdated()) ? null : Entry.keyOf(pool);
+		IFunctionEntry res = pool.select(name, type);
+		if (res == null)
+			throw FlightEvents.noSuchFunction(name, type);
+
+		if (key != null && pool.modCount == 0) update(key, res);
+
+		return res;
+	}
+
+	private boolean hasOutdated() {
+		for (Entry e = head; e != null; e = e.next) {
+			if (!e.isValid()) return true;
+		}
+		return false;
+	}
+
+	private synchronized void update(Entry key, IFunctionEntry entry) {
+		int count = 0;
+		Entry valid = null;
+		for (Entry e = head; e != null; e = e.next) {
+			if (!e.isValid()) continue;
+
+			valid = e.copy(e.entry, valid);
+			count++;
+		}
+
+		if (count >= MAX_POLYMORPHIC) {
+			megamorphic = true;
+			head = valid;
+			return;
+		}
+
+		megamorphic = false;
+		head = key.copy(entry, valid);
+	}
+
+	/** Clear all cached entries of this call site and make it available to cache again. */
+	public synchronized void reset() {
+		head = null;
+		megamorphic = false;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public FunctionType getType() {
+		return type;
+	}
+
+	@Override
+	public String toString() {
+		return "call site: " + name + type + (megamorphic ? " (megamorphic)" : "");
+	}
+
+	private static class Entry {
+		final DataPool parent;
+		final DataPool fallback;
+		final int version;
+		final int fallbackVersion;
+
+		final IFunctionEntry entry;
+		final Entry next;
+
+		Entry(DataPool parent, DataPool fallback, int version, int fallbackVersion, IFunctionEntry entry, Entry next) {
+			this.parent = parent;
+			this.fallback = fallback;
+			this.version = version;
+			this.fallbackVersion = fallbackVersion;
+			this.entry = entry;
+			this.next = next;
+		}
+
+		/** Create the key of the given pool with the current versions, it must be created before the function is selected. */
+		static Entry keyOf(DataPool pool) {
+			return new Entry(pool.superPool, pool.fallback, versionOf(pool.superPool), versionOf(pool.fallback), null, null);
+		}
+
+		static int versionOf(DataPool pool) {
+			return pool == null ? 0 : pool.version();
+		}
+
+		Entry copy(IFunctionEntry entry, Entry next) {
+			return new Entry(parent, fallback, version, fallbackVersion, entry, next);
+		}
+
+		boolean isValid() {
+			return version == versionOf(parent) && fallbackVersion == versionOf(fallback);
+		}
+
+		boolean matches(DataPool pool) {
+			return pool.modCount == 0 && parent == pool.superPool && fallback == pool.fallback && isValid();
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package dynamilize;
+
+import java.lang.invoke.MethodHandle;
+
+/**
+ * A precompiled factory of the instances of a dynamic type, obtained by {@link DynamicMaker#getFactory(Class, Class[], Class[], DynamicClass, Class[])}.
+ * <p>The dynamic type, its constructor and the data pools shared by its instances are resolved when the factory is
+ * created, the factory holds a method handle that calls the constructor directly, so creating an instance does not
+ * build the argument list, search the constructors or call the constructor reflectively. A factory is immutable and
+ * can be used from any thread, it is recommended to obtain it once and keep it for the hot paths of object creation.
+ *
+ * @author EBwilson
+ */
+public final class InstanceFactory<T> {
+	private final Class<? extends T> type;
+	private final DynamicClass dynamicClass;
+	private final Class<?>[] argTypes;
+	/** The constructor handle of type {@code (Object[])DynamicObject}, the arguments are spread to the constructor. */
+	private final MethodHandle handle;
+
+	InstanceFactory(Class<? extends T> type, DynamicClass dynamicClass, Class<?>[] argTypes, MethodHandle handle) {
+		this.type = type;
+		this.dynamicClass = dynamicClass;
+		this.argTypes = argTypes;
+		this.handle = handle;
+	}
+
+	/**
+	 * Create an instance of the dynamic type.
+	 *
+	 * @param args The constructor arguments, its length must be same as the argument types of this factory
+	 * @return The created instance
+	 * @throws IllegalHandleException If the arguments do not match the constructor, or the constructor throws an exception
+	 */
+	@SuppressWarnings("unchecked")
+	public DynamicObject<T> newInstance(Object... args) {
+		try {
+			return (DynamicObject<T>) (DynamicObject<?>) handle.invokeExact(args);
+		} catch (Throwable e) {
+			throw new IllegalHandleException(e);
+		}
+	}
+
+	/** Get the generated dynamic type of the created instances. */
+	public Class<? extends T> getType() {
+		return type;
+	}
+
+	/** Get the dynamic class of the created instances. */
+	public DynamicClass getDynamicClass() {
+		return dynamicClass;
+	}
+
+	/** Get the constructor argument types of this factory, <strong>the returned array must not be modified</strong>. */
+	public Class<?>[] getArgTypes() {
+		return argTypes;
+	}
+}
@@ -0,0 +1,95 @@
+package dynamilize;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * A concurrent histogram of latencies in nanoseconds with log-linear buckets, in the manner of HdrHistogram: each
+ * power of two is split into {@code 2^}{@link LatencyHistogram#SUB_BUCKET_BITS} sub-buckets, so any recorded value is
+ * reported with a relative error no more than {@code 1 / 2^SUB_BUCKET_BITS} (12.5%), with a fixed memory footprint
+ * covering the whole range of {@code long}. Recording a value is an increment of an array element without locking.
+ *
+ * @author EBwilson
+ */
+public final class LatencyHistogram {
+	/** The bits of the sub-buckets of each power of two. */
+	public static final int SUB_BUCKET_BITS = 3;
+
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int BUCKETS = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	/** Record a latency, the negative values are recorded as 0. */
+	public void record(long nanos) {
+		if (nanos < 0) nanos = 0;
+
+		counts.incrementAndGet(index(nanos));
+		max.accumulate(nanos);
+	}
+
+	/** Get the count of the recorded values. */
+	public long count() {
+		long res = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			res += counts.get(i);
+		}
+
+		return res;
+	}
+
+	/** Get the max recorded value exactly. */
+	public long max() {
+		return max.get();
+	}
+
+	/**
+	 * Get the value at a percentile of the recorded values, it is the highest value equivalent to the bucket the
+	 * percentile falls in, and never greater than the {@linkplain LatencyHistogram#max() max value}.
+	 *
+	 * @param percentile The percentile in [0, 100]
+	 * @return The value at the percentile, or 0 if nothing is recorded
+	 */
+	public long percentile(double percentile) {
+		long[] snapshot = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			total += snapshot[i] = counts.get(i);
+		}
+		if (total == 0) return 0;
+
+		long target = Math.max(1, (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100 * total));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += snapshot[i];
+			if (seen >= target) return Math.min(highestEquivalent(i), max());
+		}
+
+		return max();
+	}
+
+	/** Clear the recorded values. */
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		max.reset();
+	}
+
+	static int index(long value) {
+		if (value < SUB_BUCKETS) return (int) value;
+
+		int magnitude = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	static long highestEquivalent(int index) {
+		if (index < SUB_BUCKETS) return index;
+
+		int shift = index / SUB_BUCKETS - 1;
+		long lowest = (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+		return lowest + (1L << shift) - 1;
+	}
+}
@@ -11,8 +11,8 @@ import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The utility class used to access and elevate package private methods is used to create a string of
@@ -95,7 +95,7 @@ public abstract class PackageAccHandler {
 	public static final int PAC_PRI_FLAGS = Modifier.PUBLIC | Modifier.PROTECTED | Modifier.PRIVATE | Modifier.STATIC | Modifier.FINAL;
 	@SuppressWarnings("rawtypes")
 	public static final ILocal[] A = new ILocal[0];
-	private final Map<Class<?>, Class<?>> classMap = new HashMap<>();
+	private final Map<Class<?>, Class<?>> classMap = new ConcurrentHashMap<>();
 
 	public <T> Class<? extends T> handle(Class<T> baseClass) {
 		return (Class<? extends T>) classMap.computeIfAbsent(baseClass, c -> {
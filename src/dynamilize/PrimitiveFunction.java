@@ -0,0 +1,259 @@
+package dynamilize;
+
+/**
+ * The functions specialized for the common numeric method shapes, the generated dynamic methods of the same shape
+ * call them with the primitive arguments and receive the primitive result directly, without boxing. The shapes are:
+ * <ul>
+ *   <li>no parameter returning a primitive: {@link ToInt}, {@link ToLong}, {@link ToFloat}, {@link ToDouble}, {@link ToBoolean}</li>
+ *   <li>a primitive parameter returning the same primitive: {@link IntToInt}, {@link LongToLong}, {@link FloatToFloat}, {@link DoubleToDouble}</li>
+ *   <li>a primitive parameter without return value: {@link IntConsumer}, {@link LongConsumer}, {@link FloatConsumer}, {@link DoubleConsumer}</li>
+ * </ul>
+ * Create the function by a lambda of the shape, and set it like any other function, for example:
+ * <pre>{@code
+ * dynamicClass.setFunction("update", (PrimitiveFunction.FloatToFloat<Entity>) (self, delta) -> delta * 2, float.class);
+ * }</pre>
+ * A specialized function can still be invoked as an ordinary {@link Function}, the arguments are unboxed and the result is
+ * boxed then. The generated methods whose shape is not matched by the installed function use the boxed path as usual.
+ *
+ * @author EBwilson
+ */
+public interface PrimitiveFunction<S> extends Function<S, Object> {
+	/**
+	 * Get the specialized function type of a method shape.
+	 *
+	 * @param returnType The return type of the method
+	 * @param paramTypes The parameter types of the method
+	 * @return The specialized function type, or null if the shape is not specialized
+	 */
+	static Class<?> shapeOf(Class<?> returnType, Class<?>... paramTypes) {
+		if (paramTypes.length == 0) {
+			if (returnType == int.class) return ToInt.class;
+			if (returnType == long.class) return ToLong.class;
+			if (returnType == float.class) return ToFloat.class;
+			if (returnType == double.class) return ToDouble.class;
+			if (returnType == boolean.class) return ToBoolean.class;
+		} else if (paramTypes.length == 1) {
+			Class<?> param = paramTypes[0];
+			if (returnType == void.class) {
+				if (param == int.class) return IntConsumer.class;
+				if (param == long.class) return LongConsumer.class;
+				if (param == float.class) return FloatConsumer.class;
+				if (param == double.class) return DoubleConsumer.class;
+			} else if (returnType == param) {
+				if (param == int.class) return IntToInt.class;
+				if (param == long.class) return LongToLong.class;
+				if (param == float.class) return FloatToFloat.class;
+				if (param == double.class) return DoubleToDouble.class;
+			}
+		}
+
+		return null;
+	}
+
+	private static Number number(ArgumentList args) {
+		return args.get(0);
+	}
+
+	@FunctionalInterface
+	interface ToInt<S> extends PrimitiveFunction<S> {
+		int apply(DynamicObject<S> self);
+
+		@Override
+		default Object invoke(DynamicObject<S> self, ArgumentList args) {
+			return apply(self);
+		}
+
+		@Override
+		default Object call(DynamicObject<S> self, FunctionType type) {
+			return apply(self);
+		}
+	}
+
+	@FunctionalInterface
+	interface ToLong<S> extends PrimitiveFunction<S> {
+		long apply(DynamicObject<S> self);
+
+		@Override
+		default Object invoke(DynamicObject<S> self, ArgumentList args) {
+			return apply(self);
+		}
+
+		@Override
+		default Object call(DynamicObject<S> self, FunctionType type) {
+			return apply(self);
+		}
+	}
+
+	@FunctionalInterface
+	interface ToFloat<S> extends PrimitiveFunction<S> {
+		float apply(DynamicObject<S> self);
+
+		@Override
+		default Object invoke(DynamicObject<S> self, ArgumentList args) {
+			return apply(self);
+		}
+
+		@Override
+		default Object call(DynamicObject<S> self, FunctionType type) {
+			return apply(self);
+		}
+	}
+
+	@FunctionalInterface
+	interface ToDouble<S> extends PrimitiveFunction<S> {
+		double apply(DynamicObject<S> self);
+
+		@Override
+		default Object invoke(DynamicObject<S> self, ArgumentList args) {
+			return apply(self);
+		}
+
+		@Override
+		default Object call(DynamicObject<S> self, FunctionType type) {
+			return apply(self);
+		}
+	}
+
+	@FunctionalInterface
+	interface ToBoolean<S> extends PrimitiveFunction<S> {
+		boolean apply(DynamicObject<S> self);
+
+		@Override
+		default Object invoke(DynamicObject<S> self, ArgumentList args) {
+			return apply(self);
+		}
+
+		@Override
+		default Object call(DynamicObject<S> self, FunctionType type) {
+			return apply(self);
+		}
+	}
+
+	@FunctionalInterface
+	interface IntToInt<S> extends PrimitiveFunction<S> {
+		int apply(DynamicObject<S> self, int a0);
+
+		@Override
+		default Object invoke(DynamicObject<S> self, ArgumentList args) {
+			return apply(self, number(args).intValue());
+		}
+
+		@Override
+		default Object call(DynamicObject<S> self, FunctionType type, Object a0) {
+			return apply(self, ((Number) a0).intValue());
+		}
+	}
+
+	@FunctionalInterface
+	interface LongToLong<S> extends PrimitiveFunction<S> {
+		long apply(DynamicObject<S> self, long a0);
+
+		@Override
+		default Object invoke(DynamicObject<S> self, ArgumentList args) {
+			return apply(self, number(args).longValue());
+		}
+
+		@Override
+		default Object call(DynamicObject<S> self, FunctionType type, Object a0) {
+			return apply(self, ((Number) a0).longValue());
+		}
+	}
+
+	@FunctionalInterface
+	interface FloatToFloat<S> extends PrimitiveFunction<S> {
+		float apply(DynamicObject<S> self, float a0);
+
+		@Override
+		default Object invoke(DynamicObject<S> self, ArgumentList args) {
+			return apply(self, number(args).floatValue());
+		}
+
+		@Override
+		default Object call(DynamicObject<S> self, FunctionType type, Object a0) {
+			return apply(self, ((Number) a0).floatValue());
+		}
+	}
+
+	@FunctionalInterface
+	interface DoubleToDouble<S> extends PrimitiveFunction<S> {
+		double apply(DynamicObject<S> self, double a0);
+
+		@Override
+		default Object invoke(DynamicObject<S> self, ArgumentList args) {
+			return apply(self, number(args).doubleValue());
+		}
+
+		@Override
+		default Object call(DynamicObject<S> self, FunctionType type, Object a0) {
+			return apply(self, ((Number) a0).doubleValue());
+		}
+	}
+
+	@FunctionalInterface
+	interface IntConsumer<S> extends PrimitiveFunction<S> {
+		void apply(DynamicObject<S> self, int a0);
+
+		@Override
+		default Object invoke(DynamicObject<S> self, ArgumentList args) {
+			apply(self, number(args).intValue());
+			return null;
+		}
+
+		@Override
+		default Object call(DynamicObject<S> self, FunctionType type, Object a0) {
+			apply(self, ((Number) a0).intValue());
+			return null;
+		}
+	}
+
+	@FunctionalInterface
+	interface LongConsumer<S> extends PrimitiveFunction<S> {
+		void apply(DynamicObject<S> self, long a0);
+
+		@Override
+		default Object invoke(DynamicObject<S> self, ArgumentList args) {
+			apply(self, number(args).longValue());
+			return null;
+		}
+
+		@Override
+		default Object call(DynamicObject<S> self, FunctionType type, Object a0) {
+			apply(self, ((Number) a0).longValue());
+			return null;
+		}
+	}
+
+	@FunctionalInterface
+	interface FloatConsumer<S> extends PrimitiveFunction<S> {
+		void apply(DynamicObject<S> self, float a0);
+
+		@Override
+		default Object invoke(DynamicObject<S> self, ArgumentList args) {
+			apply(self, number(args).floatValue());
+			return null;
+		}
+
+		@Override
+		default Object call(DynamicObject<S> self, FunctionType type, Object a0) {
+			apply(self, ((Number) a0).floatValue());
+			return null;
+		}
+	}
+
+	@FunctionalInterface
+	interface DoubleConsumer<S> extends PrimitiveFunction<S> {
+		void apply(DynamicObject<S> self, double a0);
+
+		@Override
+		default Object invoke(DynamicObject<S> self, ArgumentList args) {
+			apply(self, number(args).doubleValue());
+			return null;
+		}
+
+		@Override
+		default Object call(DynamicObject<S> self, FunctionType type, Object a0) {
+			apply(self, ((Number) a0).doubleValue());
+			return null;
+		}
+	}
+}
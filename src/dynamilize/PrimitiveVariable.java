@@ -0,0 +1,597 @@
+package dynamilize;
+
+/**
+ * The variable declared with a primitive type, there is a dedicated implementation for each primitive type, the
+ * values of the variable are stored as raw bits without boxing:
+ * <ul>
+ *   <li>If the object stores variables by {@link Shape}, the bits are stored in the primitive bank of the object,
+ *   the bank index is cached for the last shape passing through this variable.</li>
+ *   <li>If the class of the object stores this variable in a field of the same type (see {@link FieldLayout}),
+ *   the field is accessed directly.</li>
+ *   <li>Otherwise, a {@code long[1]} cell holding the bits is stored through {@link DynamicObject#varValueSet(String, Object)},
+ *   the cell is created on the first write and updated in place after that.</li>
+ * </ul>
+ * The typed accessors of the declared type do not box, the accessors of other types and the generic accessors
+ * box or convert the value. Assigning a value that cannot be converted to the declared type (including null) will
+ * throw an {@link IllegalHandleException}.
+ *
+ * @author EBwilson
+ */
+public abstract class PrimitiveVariable extends Variable {
+	private ShapeCache bankCache;
+
+	protected PrimitiveVariable(String name, Initializer<?> init) {
+		super(name, init);
+	}
+
+	/**
+	 * Create the primitive variable of the given type.
+	 *
+	 * @param name variable name
+	 * @param type The primitive type of the variable
+	 * @param init The initializer of the variable, can be null
+	 * @return The variable
+	 * @throws IllegalHandleException If the type is not primitive
+	 */
+	public static PrimitiveVariable of(String name, Class<?> type, Initializer<?> init) {
+		if (type == boolean.class) return new OfBoolean(name, init);
+		if (type == byte.class) return new OfByte(name, init);
+		if (type == short.class) return new OfShort(name, init);
+		if (type == int.class) return new OfInt(name, init);
+		if (type == long.class) return new OfLong(name, init);
+		if (type == float.class) return new OfFloat(name, init);
+		if (type == double.class) return new OfDouble(name, init);
+		if (type == char.class) return new OfChar(name, init);
+
+		throw new IllegalHandleException("type " + type + " is not a primitive type");
+	}
+
+	@Override
+	public abstract Class<?> getType();
+
+	/** Convert a value to the raw bits of the declared type. */
+	protected abstract long toBits(Object value);
+
+	/** Box the raw bits to the wrapper of the declared type. */
+	protected abstract Object fromBits(long bits);
+
+	protected abstract long readField(FieldLayout.Slot slot, DynamicObject<?> obj);
+
+	protected abstract void writeField(FieldLayout.Slot slot, DynamicObject<?> obj, long bits);
+
+	/**
+	 * Read the raw bits of this variable from the given object.
+	 *
+	 * @param obj The object
+	 * @param def The bits returned if the variable was never set on the object
+	 * @return The bits of the value
+	 */
+	protected long getBits(DynamicObject<?> obj, long def) {
+		if (obj instanceof Shape.Holder holder) {
+			int index = bankIndex(holder.$shape());
+			return index < 0 ? def : holder.$bank()[index];
+		}
+
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null && slot.type() == getType()) return readField(slot, obj);
+
+		Object value = obj.varValueGet(name());
+		if (value instanceof long[] cell) return cell[0];
+		return value == null ? def : toBits(value);
+	}
+
+	/**
+	 * Write the raw bits of this variable to the given object.
+	 *
+	 * @param obj  The object
+	 * @param bits The bits of the value
+	 */
+	protected void setBits(DynamicObject<?> obj, long bits) {
+		if (obj instanceof Shape.Holder holder) {
+			int index = bankIndex(holder.$shape());
+			if (index >= 0) holder.$bank()[index] = bits;
+			else Shape.setBits(holder, name(), bits);
+			return;
+		}
+
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null && slot.type() == getType()) {
+			writeField(slot, obj, bits);
+			return;
+		}
+
+		if (obj.varValueGet(name()) instanceof long[] cell) cell[0] = bits;
+		else obj.varValueSet(name(), new long[]{bits});
+	}
+
+	private int bankIndex(Shape shape) {
+		ShapeCache c = bankCache;
+		if (c == null || c.shape != shape) bankCache = c = new ShapeCache(shape, shape.bankIndexOf(name()));
+
+		return c.index;
+	}
+
+	protected IllegalHandleException mismatch(Object value) {
+		return new IllegalHandleException("variable " + name() + " was typed " + getType() + ", cannot assign " + value + " to it");
+	}
+
+	private IllegalHandleException notA(DynamicObject<?> obj, String type) {
+		return new IllegalHandleException("variable " + name() + " in object " + obj + " was not a " + type);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T> T get(DynamicObject<?> obj) {
+		if (obj instanceof Shape.Holder holder) {
+			int index = bankIndex(holder.$shape());
+			return index < 0 ? null : (T) fromBits(holder.$bank()[index]);
+		}
+
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null && slot.type() == getType()) return (T) fromBits(readField(slot, obj));
+
+		Object value = obj.varValueGet(name());
+		if (value instanceof long[] cell) return (T) fromBits(cell[0]);
+		return value == null ? null : (T) fromBits(toBits(value));
+	}
+
+	@Override
+	public void set(DynamicObject<?> obj, Object value) {
+		if (value == null) throw mismatch(null);
+
+		setBits(obj, toBits(value));
+	}
+
+	@Override
+	public boolean get(DynamicObject<?> obj, boolean def) {
+		Object value = get(obj);
+		if (value == null) return def;
+		if (value instanceof Boolean b) return b;
+
+		throw notA(obj, "boolean");
+	}
+
+	@Override
+	public byte get(DynamicObject<?> obj, byte def) {
+		Object value = get(obj);
+		if (value == null) return def;
+		if (value instanceof Number n) return n.byteValue();
+
+		throw notA(obj, "byte");
+	}
+
+	@Override
+	public short get(DynamicObject<?> obj, short def) {
+		Object value = get(obj);
+		if (value == null) return def;
+		if (value instanceof Number n) return n.shortValue();
+
+		throw notA(obj, "short");
+	}
+
+	@Override
+	public int get(DynamicObject<?> obj, int def) {
+		Object value = get(obj);
+		if (value == null) return def;
+		if (value instanceof Number n) return n.intValue();
+		if (value instanceof Character c) return c;
+
+		throw notA(obj, "integer");
+	}
+
+	@Override
+	public long get(DynamicObject<?> obj, long def) {
+		Object value = get(obj);
+		if (value == null) return def;
+		if (value instanceof Number n) return n.longValue();
+		if (value instanceof Character c) return c;
+
+		throw notA(obj, "long");
+	}
+
+	@Override
+	public float get(DynamicObject<?> obj, float def) {
+		Object value = get(obj);
+		if (value == null) return def;
+		if (value instanceof Number n) return n.floatValue();
+
+		throw notA(obj, "float");
+	}
+
+	@Override
+	public double get(DynamicObject<?> obj, double def) {
+		Object value = get(obj);
+		if (value == null) return def;
+		if (value instanceof Number n) return n.doubleValue();
+
+		throw notA(obj, "double");
+	}
+
+	@Override
+	public char get(DynamicObject<?> obj, char def) {
+		Object value = get(obj);
+		if (value == null) return def;
+		if (value instanceof Character c) return c;
+
+		throw notA(obj, "char");
+	}
+
+	@Override
+	public void set(DynamicObject<?> obj, boolean value) {
+		setBits(obj, toBits(value));
+	}
+
+	@Override
+	public void set(DynamicObject<?> obj, byte value) {
+		setBits(obj, toBits(value));
+	}
+
+	@Override
+	public void set(DynamicObject<?> obj, short value) {
+		setBits(obj, toBits(value));
+	}
+
+	@Override
+	public void set(DynamicObject<?> obj, int value) {
+		setBits(obj, toBits(value));
+	}
+
+	@Override
+	public void set(DynamicObject<?> obj, long value) {
+		setBits(obj, toBits(value));
+	}
+
+	@Override
+	public void set(DynamicObject<?> obj, float value) {
+		setBits(obj, toBits(value));
+	}
+
+	@Override
+	public void set(DynamicObject<?> obj, double value) {
+		setBits(obj, toBits(value));
+	}
+
+	@Override
+	public void set(DynamicObject<?> obj, char value) {
+		setBits(obj, toBits(value));
+	}
+
+	public static class OfBoolean extends PrimitiveVariable {
+		public OfBoolean(String name, Initializer<?> init) {
+			super(name, init);
+		}
+
+		@Override
+		public Class<?> getType() {
+			return boolean.class;
+		}
+
+		@Override
+		protected long toBits(Object value) {
+			if (value instanceof Boolean b) return b ? 1 : 0;
+			throw mismatch(value);
+		}
+
+		@Override
+		protected Object fromBits(long bits) {
+			return bits != 0;
+		}
+
+		@Override
+		protected long readField(FieldLayout.Slot slot, DynamicObject<?> obj) {
+			return slot.getBoolean(obj) ? 1 : 0;
+		}
+
+		@Override
+		protected void writeField(FieldLayout.Slot slot, DynamicObject<?> obj, long bits) {
+			slot.setBoolean(obj, bits != 0);
+		}
+
+		@Override
+		public boolean get(DynamicObject<?> obj, boolean def) {
+			return getBits(obj, def ? 1 : 0) != 0;
+		}
+
+		@Override
+		public void set(DynamicObject<?> obj, boolean value) {
+			setBits(obj, value ? 1 : 0);
+		}
+	}
+
+	public static class OfByte extends PrimitiveVariable {
+		public OfByte(String name, Initializer<?> init) {
+			super(name, init);
+		}
+
+		@Override
+		public Class<?> getType() {
+			return byte.class;
+		}
+
+		@Override
+		protected long toBits(Object value) {
+			if (value instanceof Number n) return n.byteValue();
+			throw mismatch(value);
+		}
+
+		@Override
+		protected Object fromBits(long bits) {
+			return (byte) bits;
+		}
+
+		@Override
+		protected long readField(FieldLayout.Slot slot, DynamicObject<?> obj) {
+			return slot.getByte(obj);
+		}
+
+		@Override
+		protected void writeField(FieldLayout.Slot slot, DynamicObject<?> obj, long bits) {
+			slot.setByte(obj, (byte) bits);
+		}
+
+		@Override
+		public byte get(DynamicObject<?> obj, byte def) {
+			return (byte) getBits(obj, def);
+		}
+
+		@Override
+		public void set(DynamicObject<?> obj, byte value) {
+			setBits(obj, value);
+		}
+	}
+
+	public static class OfShort extends PrimitiveVariable {
+		public OfShort(String name, Initializer<?> init) {
+			super(name, init);
+		}
+
+		@Override
+		public Class<?> getType() {
+			return short.class;
+		}
+
+		@Override
+		protected long toBits(Object value) {
+			if (value instanceof Number n) return n.shortValue();
+			throw mismatch(value);
+		}
+
+		@Override
+		protected Object fromBits(long bits) {
+			return (short) bits;
+		}
+
+		@Override
+		protected long readField(FieldLayout.Slot slot, DynamicObject<?> obj) {
+			return slot.getShort(obj);
+		}
+
+		@Override
+		protected void writeField(FieldLayout.Slot slot, DynamicObject<?> obj, long bits) {
+			slot.setShort(obj, (short) bits);
+		}
+
+		@Override
+		public short get(DynamicObject<?> obj, short def) {
+			return (short) getBits(obj, def);
+		}
+
+		@Override
+		public void set(DynamicObject<?> obj, short value) {
+			setBits(obj, value);
+		}
+	}
+
+	public static class OfInt extends PrimitiveVariable {
+		public OfInt(String name, Initializer<?> init) {
+			super(name, init);
+		}
+
+		@Override
+		public Class<?> getType() {
+			return int.class;
+		}
+
+		@Override
+		protected long toBits(Object value) {
+			if (value instanceof Number n) return n.intValue();
+			if (value instanceof Character c) return c;
+			throw mismatch(value);
+		}
+
+		@Override
+		protected Object fromBits(long bits) {
+			return (int) bits;
+		}
+
+		@Override
+		protected long readField(FieldLayout.Slot slot, DynamicObject<?> obj) {
+			return slot.getInt(obj);
+		}
+
+		@Override
+		protected void writeField(FieldLayout.Slot slot, DynamicObject<?> obj, long bits) {
+			slot.setInt(obj, (int) bits);
+		}
+
+		@Override
+		public int get(DynamicObject<?> obj, int def) {
+			return (int) getBits(obj, def);
+		}
+
+		@Override
+		public void set(DynamicObject<?> obj, int value) {
+			setBits(obj, value);
+		}
+	}
+
+	public static class OfLong extends PrimitiveVariable {
+		public OfLong(String name, Initializer<?> init) {
+			super(name, init);
+		}
+
+		@Override
+		public Class<?> getType() {
+			return long.class;
+		}
+
+		@Override
+		protected long toBits(Object value) {
+			if (value instanceof Number n) return n.longValue();
+			if (value instanceof Character c) return c;
+			throw mismatch(value);
+		}
+
+		@Override
+		protected Object fromBits(long bits) {
+			return bits;
+		}
+
+		@Override
+		protected long readField(FieldLayout.Slot slot, DynamicObject<?> obj) {
+			return slot.getLong(obj);
+		}
+
+		@Override
+		protected void writeField(FieldLayout.Slot slot, DynamicObject<?> obj, long bits) {
+			slot.setLong(obj, bits);
+		}
+
+		@Override
+		public long get(DynamicObject<?> obj, long def) {
+			return getBits(obj, def);
+		}
+
+		@Override
+		public void set(DynamicObject<?> obj, long value) {
+			setBits(obj, value);
+		}
+	}
+
+	public static class OfFloat extends PrimitiveVariable {
+		public OfFloat(String name, Initializer<?> init) {
+			super(name, init);
+		}
+
+		@Override
+		public Class<?> getType() {
+			return float.class;
+		}
+
+		@Override
+		protected long toBits(Object value) {
+			if (value instanceof Number n) return Float.floatToRawIntBits(n.floatValue());
+			throw mismatch(value);
+		}
+
+		@Override
+		protected Object fromBits(long bits) {
+			return Float.intBitsToFloat((int) bits);
+		}
+
+		@Override
+		protected long readField(FieldLayout.Slot slot, DynamicObject<?> obj) {
+			return Float.floatToRawIntBits(slot.getFloat(obj));
+		}
+
+		@Override
+		protected void writeField(FieldLayout.Slot slot, DynamicObject<?> obj, long bits) {
+			slot.setFloat(obj, Float.intBitsToFloat((int) bits));
+		}
+
+		@Override
+		public float get(DynamicObject<?> obj, float def) {
+			return Float.intBitsToFloat((int) getBits(obj, Float.floatToRawIntBits(def)));
+		}
+
+		@Override
+		public void set(DynamicObject<?> obj, float value) {
+			setBits(obj, Float.floatToRawIntBits(value));
+		}
+	}
+
+	public static class OfDouble extends PrimitiveVariable {
+		public OfDouble(String name, Initializer<?> init) {
+			super(name, init);
+		}
+
+		@Override
+		public Class<?> getType() {
+			return double.class;
+		}
+
+		@Override
+		protected long toBits(Object value) {
+			if (value instanceof Number n) return Double.doubleToRawLongBits(n.doubleValue());
+			throw mismatch(value);
+		}
+
+		@Override
+		protected Object fromBits(long bits) {
+			return Double.longBitsToDouble(bits);
+		}
+
+		@Override
+		protected long readField(FieldLayout.Slot slot, DynamicObject<?> obj) {
+			return Double.doubleToRawLongBits(slot.getDouble(obj));
+		}
+
+		@Override
+		protected void writeField(FieldLayout.Slot slot, DynamicObject<?> obj, long bits) {
+			slot.setDouble(obj, Double.longBitsToDouble(bits));
+		}
+
+		@Override
+		public double get(DynamicObject<?> obj, double def) {
+			return Double.longBitsToDouble(getBits(obj, Double.doubleToRawLongBits(def)));
+		}
+
+		@Override
+		public void set(DynamicObject<?> obj, double value) {
+			setBits(obj, Double.doubleToRawLongBits(value));
+		}
+	}
+
+	public static class OfChar extends PrimitiveVariable {
+		public OfChar(String name, Initializer<?> init) {
+			super(name, init);
+		}
+
+		@Override
+		public Class<?> getType() {
+			return char.class;
+		}
+
+		@Override
+		protected long toBits(Object value) {
+			if (value instanceof Character c) return c;
+			if (value instanceof Number n) return (char) n.intValue();
+			throw mismatch(value);
+		}
+
+		@Override
+		protected Object fromBits(long bits) {
+			return (char) bits;
+		}
+
+		@Override
+		protected long readField(FieldLayout.Slot slot, DynamicObject<?> obj) {
+			return slot.getChar(obj);
+		}
+
+		@Override
+		protected void writeField(FieldLayout.Slot slot, DynamicObject<?> obj, long bits) {
+			slot.setChar(obj, (char) bits);
+		}
+
+		@Override
+		public char get(DynamicObject<?> obj, char def) {
+			return (char) getBits(obj, def);
+		}
+
+		@Override
+		public void set(DynamicObject<?> obj, char value) {
+			setBits(obj, value);
+		}
+	}
+}
@@ -1,7 +1,7 @@
 package dynamilize;
 
 import java.lang.reflect.Method;
-import java.util.Arrays;
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.WeakHashMap;
@@ -197,8 +197,7 @@ public abstract class ProxyMaker {
 	public static class FunctionMarker implements FuncMarker {
 		public static int maxPoolSize = 4096;
 
-		private static FunctionMarker[] pool = new FunctionMarker[128];
-		private static int cursor = -1;
+		private static final ThreadLocal<ArrayDeque<FunctionMarker>> POOLS = ThreadLocal.withInitial(ArrayDeque::new);
 
 		private String name;
 		private FunctionType type;
@@ -206,7 +205,11 @@ public abstract class ProxyMaker {
 		private Function<?, Object> function;
 
 		private static FunctionMarker make(IFunctionEntry functionEntry) {
-			FunctionMarker res = cursor < 0 ? new FunctionMarker() : pool[cursor];
+			FunctionMarker res = POOLS.get().poll();
+			if (res == null) {
+				FlightEvents.underflow("FunctionMarker");
+				res = new FunctionMarker();
+			}
 
 			res.name = functionEntry.getName();
 			res.type = functionEntry.getType();
@@ -243,14 +246,13 @@ public abstract class ProxyMaker {
 			function = null;
 			entry = null;
 
-			if (cursor >= maxPoolSize) return;
-
-			cursor++;
-			if (cursor >= pool.length) {
-				pool = Arrays.copyOf(pool, pool.length * 2);
+			ArrayDeque<FunctionMarker> pool = POOLS.get();
+			if (pool.size() >= maxPoolSize) {
+				FlightEvents.overflow("FunctionMarker", maxPoolSize);
+				return;
 			}
 
-			pool[cursor] = this;
+			pool.push(this);
 		}
 	}
 
@@ -269,7 +271,6 @@ public abstract class ProxyMaker {
 		default Object invoke(DynamicObject<?> self, Object... args) {
 			ArgumentList lis = ArgumentList.as(args);
 			Object r = invoke(self, lis);
-			lis.type().recycle();
 			lis.recycle();
 			return r;
 		}
@@ -0,0 +1,213 @@
+package dynamilize;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The immutable shape of the variables of a dynamic object, used by the classes generated in the
+ * {@link DynamicMaker.VariableLayout#SHAPE} mode. A shape maps the names of variables to the indices of the slot
+ * array held by the object, an object that has the same variables added in the same order has the same shape.
+ * <p>When a new variable is added to an object, the object transits to a child shape, the transitions are cached
+ * in the parent shape, so the objects initialized in the same way share the shapes.
+ * <p>Since a shape never changes, a {@linkplain IVariable variable} can cache the slot index it has resolved for
+ * a shape, the access to the variable on an object with that shape is a reference comparison and an array access.
+ * <p>The {@linkplain PrimitiveVariable primitive variables} are stored in a separate {@code long[]} bank of the object
+ * as raw bits, they have their own indices in the shape, so the primitive values are never boxed.
+ * <p><strong>The static methods of this type are referenced by the generated code, generally you should not use them anywhere else.</strong>
+ *
+ * @author EBwilson
+ */
+public final class Shape {
+	/** The root shape that has no variables, all objects start from this shape. */
+	public static final Shape EMPTY = new Shape(null, null, false);
+	private static final Object[] EMPTY_SLOTS = new Object[0];
+	private static final long[] EMPTY_BANK = new long[0];
+
+	/** The initial length of the slot array of an object. */
+	public static int INITIAL_CAPACITY = 4;
+
+	private final Shape parent;
+	private final Map<String, Integer> indices;
+	private final Map<String, Integer> primitiveIndices;
+	private final ConcurrentHashMap<String, Shape> transitions = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Shape> primitiveTransitions = new ConcurrentHashMap<>();
+
+	private Shape(Shape parent, String name, boolean primitive) {
+		this.parent = parent;
+
+		if (parent == null) {
+			indices = Map.of();
+			primitiveIndices = Map.of();
+		} else if (primitive) {
+			indices = parent.indices;
+			primitiveIndices = append(parent.primitiveIndices, name);
+		} else {
+			indices = append(parent.indices, name);
+			primitiveIndices = parent.primitiveIndices;
+		}
+	}
+
+	private static Map<String, Integer> append(Map<String, Integer> indices, String name) {
+		HashMap<String, Integer> map = new HashMap<>(indices);
+		map.put(name, indices.size());
+		return map;
+	}
+
+	/**
+	 * Read the value of a variable from the given object, the generated {@code varValueGet} method delegates to this.
+	 *
+	 * @param self The object
+	 * @param name variable name
+	 * @return The value of the variable, or null if it was never set
+	 */
+	public static Object get(Holder self, String name) {
+		int slot = self.$shape().slotOf(name);
+		return slot < 0 ? null : self.$slots()[slot];
+	}
+
+	/**
+	 * Write the value of a variable to the given object, the generated {@code varValueSet} method delegates to this.
+	 * If the variable was never set on the object, the object will transit to a new shape.
+	 *
+	 * @param self  The object
+	 * @param name  variable name
+	 * @param value The value to set
+	 */
+	public static void set(Holder self, String name, Object value) {
+		Shape shape = self.$shape();
+		int slot = shape.slotOf(name);
+		if (slot >= 0) {
+			self.$slots()[slot] = value;
+			return;
+		}
+
+		Shape next = shape.with(name);
+		Object[] slots = self.$slots();
+		if (slots.length < next.size()) {
+			Object[] grown = new Object[Math.max(INITIAL_CAPACITY, slots.length * 2)];
+			System.arraycopy(slots, 0, grown, 0, slots.length);
+			slots = grown;
+		}
+
+		slots[next.size() - 1] = value;
+		self.$reshape(next, slots, self.$bank());
+	}
+
+	/**
+	 * Write the raw bits of a primitive variable to the bank of the given object, if the variable was never set
+	 * on the object, the object will transit to a new shape.
+	 *
+	 * @param self The object
+	 * @param name variable name
+	 * @param bits The raw bits of the value, see {@link PrimitiveVariable}
+	 */
+	public static void setBits(Holder self, String name, long bits) {
+		Shape shape = self.$shape();
+		int index = shape.bankIndexOf(name);
+		if (index >= 0) {
+			self.$bank()[index] = bits;
+			return;
+		}
+
+		Shape next = shape.withPrimitive(name);
+		long[] bank = self.$bank();
+		if (bank.length < next.bankSize()) {
+			long[] grown = new long[Math.max(INITIAL_CAPACITY, bank.length * 2)];
+			System.arraycopy(bank, 0, grown, 0, bank.length);
+			bank = grown;
+		}
+
+		bank[next.bankSize() - 1] = bits;
+		self.$reshape(next, self.$slots(), bank);
+	}
+
+	/** Get the slot array used by the objects that have not stored any variable. */
+	public static Object[] emptySlots() {
+		return EMPTY_SLOTS;
+	}
+
+	/** Get the primitive bank used by the objects that have not stored any primitive variable. */
+	public static long[] emptyBank() {
+		return EMPTY_BANK;
+	}
+
+	/**
+	 * Get the slot index of the variable with the given name.
+	 *
+	 * @param name variable name
+	 * @return The index of the variable, or -1 if the variable is not in this shape
+	 */
+	public int slotOf(String name) {
+		Integer res = indices.get(name);
+		return res == null ? -1 : res;
+	}
+
+	/**
+	 * Get the shape transited from this shape by adding a variable, the transition is cached.
+	 *
+	 * @param name The name of the added variable
+	 * @return The child shape, or this shape if the variable is already in it
+	 */
+	public Shape with(String name) {
+		if (indices.containsKey(name)) return this;
+
+		return transitions.computeIfAbsent(name, n -> new Shape(this, n, false));
+	}
+
+	/**
+	 * Get the index of the primitive variable with the given name in the primitive bank.
+	 *
+	 * @param name variable name
+	 * @return The index of the variable, or -1 if the variable is not in this shape
+	 */
+	public int bankIndexOf(String name) {
+		Integer res = primitiveIndices.get(name);
+		return res == null ? -1 : res;
+	}
+
+	/**
+	 * Get the shape transited from this shape by adding a primitive variable, the transition is cached.
+	 *
+	 * @param name The name of the added variable
+	 * @return The child shape, or this shape if the variable is already in it
+	 */
+	public Shape withPrimitive(String name) {
+		if (primitiveIndices.containsKey(name)) return this;
+
+		return primitiveTransitions.computeIfAbsent(name, n -> new Shape(this, n, true));
+	}
+
+	/** Get the count of variables in this shape. */
+	public int size() {
+		return indices.size();
+	}
+
+	/** Get the count of primitive variables in this shape. */
+	public int bankSize() {
+		return primitiveIndices.size();
+	}
+
+	public Shape parent() {
+		return parent;
+	}
+
+	@Override
+	public String toString() {
+		return "shape" + indices.keySet() + primitiveIndices.keySet();
+	}
+
+	/**
+	 * The object that stores the variables in a slot array described by a shape, the classes generated in the
+	 * {@link DynamicMaker.VariableLayout#SHAPE} mode implement this interface.
+	 */
+	public interface Holder {
+		Shape $shape();
+
+		Object[] $slots();
+
+		long[] $bank();
+
+		void $reshape(Shape shape, Object[] slots, long[] bank);
+	}
+}
@@ -1,9 +1,21 @@
 package dynamilize;
 
+/**
+ * The default implementation of {@link IVariable}, the value is stored in the dynamic object through
+ * {@link DynamicObject#varValueGet(String)}/{@link DynamicObject#varValueSet(String, Object)}. If the class of the object
+ * stores this variable in a field (see {@link FieldLayout}), the field is accessed directly, the slot of the field is
+ * cached for the last class passing through this variable. If the object stores variables by {@link Shape}, the slot
+ * index is cached for the last shape passing through this variable.
+ * <p>The variables declared with a primitive type should be created by {@link Variable#of(String, Initializer)}, which
+ * returns a {@link PrimitiveVariable} storing the values without boxing.
+ */
 public class Variable implements IVariable {
 	private final String name;
 	private final Initializer<?> init;
 
+	private SlotCache cache;
+	private ShapeCache shapeCache;
+
 	public Variable(String name) {
 		this.name = name;
 		this.init = null;
@@ -19,39 +31,85 @@ public class Variable implements IVariable {
 		return name;
 	}
 
+	/**
+	 * Create a variable with the given initializer, if the declared type of the initializer is primitive, the
+	 * returned variable is a {@link PrimitiveVariable} of that type.
+	 *
+	 * @param name variable name
+	 * @param init The initializer of the variable
+	 * @return The variable
+	 */
+	public static Variable of(String name, Initializer<?> init) {
+		Class<?> type = init.getType();
+		return type != null && type.isPrimitive() ? PrimitiveVariable.of(name, type, init) : new Variable(name, init);
+	}
+
+	/** Get the declared type of this variable, or null if it is unknown. */
+	public Class<?> getType() {
+		return init == null ? null : init.getType();
+	}
+
 	@Override
 	public void init(DynamicObject<?> obj) {
 		Object value = init == null ? null : init.getInit();
 		if (value == null) return;
-		if (value.getClass().isPrimitive()) {
-			if (value instanceof Byte b) set(obj, b.byteValue());
-			else if (value instanceof Short b) set(obj, b.shortValue());
-			else if (value instanceof Integer b) set(obj, b.intValue());
-			else if (value instanceof Character b) set(obj, b.charValue());
-			else if (value instanceof Long b) set(obj, b.longValue());
-			else if (value instanceof Float b) set(obj, b.floatValue());
-			else if (value instanceof Double b) set(obj, b.doubleValue());
-			else if (value instanceof Boolean b) set(obj, b.booleanValue());
-			else throw new IllegalHandleException("how do you cased this?");
-		} else set(obj, value);
+
+		// the initial value of a primitive type can only be a wrapper here, it is stored as it is, the typed getters accept wrappers
+		set(obj, value);
 	}
 
 	@Override
+	@SuppressWarnings("unchecked")
 	public <T> T get(DynamicObject<?> obj) {
-		return obj.varValueGet(name);
+		if (obj instanceof Shape.Holder holder) {
+			int index = index(holder.$shape());
+			return index < 0 ? null : (T) holder.$slots()[index];
+		}
+
+		FieldLayout.Slot slot = slot(obj);
+		return slot != null ? (T) slot.get(obj) : obj.varValueGet(name);
 	}
 
 	@Override
 	public void set(DynamicObject<?> obj, Object value) {
-		obj.varValueSet(name, value);
+		if (obj instanceof Shape.Holder holder) {
+			int index = index(holder.$shape());
+			if (index >= 0) holder.$slots()[index] = value;
+			else Shape.set(holder, name, value);
+			return;
+		}
+
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null) slot.set(obj, value);
+		else obj.varValueSet(name, value);
+	}
+
+	int index(Shape shape) {
+		ShapeCache c = shapeCache;
+		if (c == null || c.shape != shape) shapeCache = c = new ShapeCache(shape, shape.slotOf(name));
+
+		return c.index;
+	}
+
+	FieldLayout.Slot slot(DynamicObject<?> obj) {
+		Class<?> type = obj.getClass();
+		SlotCache c = cache;
+		if (c == null || c.type != type) cache = c = new SlotCache(type, FieldLayout.of(type).slot(name));
+
+		return c.slot;
 	}
 
 	@Override
 	public boolean get(DynamicObject<?> obj, boolean def) {
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null && slot.type() == boolean.class) return slot.getBoolean(obj);
+
 		Object b = get(obj);
 		boolean res = def;
 		if (b instanceof boolean[] arr && arr.length == 1) {
 			res = arr[0];
+		} else if (b instanceof Boolean v) {
+			res = v;
 		} else if (b != null)
 			throw new IllegalHandleException("variable " + name + " in object " + obj + " was not a boolean");
 
@@ -60,10 +118,15 @@ public class Variable implements IVariable {
 
 	@Override
 	public byte get(DynamicObject<?> obj, byte def) {
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null && slot.type() == byte.class) return slot.getByte(obj);
+
 		Object b = get(obj);
 		byte res = def;
 		if (b instanceof byte[] arr && arr.length == 1) {
 			res = arr[0];
+		} else if (b instanceof Byte v) {
+			res = v;
 		} else if (b != null)
 			throw new IllegalHandleException("variable " + name + " in object " + obj + " was not a byte");
 
@@ -72,10 +135,15 @@ public class Variable implements IVariable {
 
 	@Override
 	public short get(DynamicObject<?> obj, short def) {
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null && slot.type() == short.class) return slot.getShort(obj);
+
 		Object b = get(obj);
 		short res = def;
 		if (b instanceof short[] arr && arr.length == 1) {
 			res = arr[0];
+		} else if (b instanceof Short v) {
+			res = v;
 		} else if (b != null)
 			throw new IllegalHandleException("variable " + name + " in object " + obj + " was not a short");
 
@@ -84,10 +152,15 @@ public class Variable implements IVariable {
 
 	@Override
 	public int get(DynamicObject<?> obj, int def) {
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null && slot.type() == int.class) return slot.getInt(obj);
+
 		Object b = get(obj);
 		int res = def;
 		if (b instanceof int[] arr && arr.length == 1) {
 			res = arr[0];
+		} else if (b instanceof Integer v) {
+			res = v;
 		} else if (b != null)
 			throw new IllegalHandleException("variable " + name + " in object " + obj + " was not a integer");
 
@@ -96,10 +169,15 @@ public class Variable implements IVariable {
 
 	@Override
 	public long get(DynamicObject<?> obj, long def) {
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null && slot.type() == long.class) return slot.getLong(obj);
+
 		Object b = get(obj);
 		long res = def;
 		if (b instanceof long[] arr && arr.length == 1) {
 			res = arr[0];
+		} else if (b instanceof Long v) {
+			res = v;
 		} else if (b != null)
 			throw new IllegalHandleException("variable " + name + " in object " + obj + " was not a long");
 
@@ -108,10 +186,15 @@ public class Variable implements IVariable {
 
 	@Override
 	public float get(DynamicObject<?> obj, float def) {
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null && slot.type() == float.class) return slot.getFloat(obj);
+
 		Object b = get(obj);
 		float res = def;
 		if (b instanceof float[] arr && arr.length == 1) {
 			res = arr[0];
+		} else if (b instanceof Float v) {
+			res = v;
 		} else if (b != null)
 			throw new IllegalHandleException("variable " + name + " in object " + obj + " was not a float");
 
@@ -120,10 +203,15 @@ public class Variable implements IVariable {
 
 	@Override
 	public double get(DynamicObject<?> obj, double def) {
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null && slot.type() == double.class) return slot.getDouble(obj);
+
 		Object b = get(obj);
 		double res = def;
 		if (b instanceof double[] arr && arr.length == 1) {
 			res = arr[0];
+		} else if (b instanceof Double v) {
+			res = v;
 		} else if (b != null)
 			throw new IllegalHandleException("variable " + name + " in object " + obj + " was not a double");
 
@@ -132,10 +220,15 @@ public class Variable implements IVariable {
 
 	@Override
 	public char get(DynamicObject<?> obj, char def) {
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null && slot.type() == char.class) return slot.getChar(obj);
+
 		Object b = get(obj);
 		char res = def;
 		if (b instanceof char[] arr && arr.length == 1) {
 			res = arr[0];
+		} else if (b instanceof Character v) {
+			res = v;
 		} else if (b != null)
 			throw new IllegalHandleException("variable " + name + " in object " + obj + " was not a char");
 
@@ -144,6 +237,12 @@ public class Variable implements IVariable {
 
 	@Override
 	public void set(DynamicObject<?> obj, boolean value) {
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null && slot.type() == boolean.class) {
+			slot.setBoolean(obj, value);
+			return;
+		}
+
 		if (get(obj) instanceof boolean[] arr && arr.length == 1) {
 			arr[0] = value;
 		} else {
@@ -153,6 +252,12 @@ public class Variable implements IVariable {
 
 	@Override
 	public void set(DynamicObject<?> obj, byte value) {
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null && slot.type() == byte.class) {
+			slot.setByte(obj, value);
+			return;
+		}
+
 		if (get(obj) instanceof byte[] arr && arr.length == 1) {
 			arr[0] = value;
 		} else {
@@ -162,6 +267,12 @@ public class Variable implements IVariable {
 
 	@Override
 	public void set(DynamicObject<?> obj, short value) {
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null && slot.type() == short.class) {
+			slot.setShort(obj, value);
+			return;
+		}
+
 		if (get(obj) instanceof short[] arr && arr.length == 1) {
 			arr[0] = value;
 		} else {
@@ -171,6 +282,12 @@ public class Variable implements IVariable {
 
 	@Override
 	public void set(DynamicObject<?> obj, int value) {
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null && slot.type() == int.class) {
+			slot.setInt(obj, value);
+			return;
+		}
+
 		if (get(obj) instanceof int[] arr && arr.length == 1) {
 			arr[0] = value;
 		} else {
@@ -180,6 +297,12 @@ public class Variable implements IVariable {
 
 	@Override
 	public void set(DynamicObject<?> obj, long value) {
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null && slot.type() == long.class) {
+			slot.setLong(obj, value);
+			return;
+		}
+
 		if (get(obj) instanceof long[] arr && arr.length == 1) {
 			arr[0] = value;
 		} else {
@@ -189,6 +312,12 @@ public class Variable implements IVariable {
 
 	@Override
 	public void set(DynamicObject<?> obj, float value) {
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null && slot.type() == float.class) {
+			slot.setFloat(obj, value);
+			return;
+		}
+
 		if (get(obj) instanceof float[] arr && arr.length == 1) {
 			arr[0] = value;
 		} else {
@@ -198,6 +327,12 @@ public class Variable implements IVariable {
 
 	@Override
 	public void set(DynamicObject<?> obj, double value) {
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null && slot.type() == double.class) {
+			slot.setDouble(obj, value);
+			return;
+		}
+
 		if (get(obj) instanceof double[] arr && arr.length == 1) {
 			arr[0] = value;
 		} else {
@@ -207,10 +342,36 @@ public class Variable implements IVariable {
 
 	@Override
 	public void set(DynamicObject<?> obj, char value) {
+		FieldLayout.Slot slot = slot(obj);
+		if (slot != null && slot.type() == char.class) {
+			slot.setChar(obj, value);
+			return;
+		}
+
 		if (get(obj) instanceof char[] arr && arr.length == 1) {
 			arr[0] = value;
 		} else {
 			set(obj, new char[]{value});
 		}
 	}
+
+	static class SlotCache {
+		final Class<?> type;
+		final FieldLayout.Slot slot;
+
+		SlotCache(Class<?> type, FieldLayout.Slot slot) {
+			this.type = type;
+			this.slot = slot;
+		}
+	}
+
+	static class ShapeCache {
+		final Shape shape;
+		final int index;
+
+		ShapeCache(Shape shape, int index) {
+			this.shape = shape;
+			this.index = index;
+		}
+	}
 }
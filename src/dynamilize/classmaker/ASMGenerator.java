@@ -15,6 +15,7 @@ import dynamilize.classmaker.code.IGetField;
 import dynamilize.classmaker.code.IGoto;
 import dynamilize.classmaker.code.IInstanceOf;
 import dynamilize.classmaker.code.IInvoke;
+import dynamilize.classmaker.code.IInvokeDynamic;
 import dynamilize.classmaker.code.ILoadConstant;
 import dynamilize.classmaker.code.ILocal;
 import dynamilize.classmaker.code.ILocalAssign;
@@ -123,12 +124,18 @@ public class ASMGenerator extends AbstractClassGenerator implements Opcodes {
 
 	@Override
 	public byte[] genByteCode(ClassInfo<?> classInfo) {
+		GenerationObserver observer = observer();
+		long start = observer == null ? 0 : System.nanoTime();
+
 		initial();
 		writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
 
 		visitClass(classInfo);
 
-		return writer.toByteArray();
+		byte[] res = writer.toByteArray();
+		if (observer != null) observer.byteCodeGenerated(classInfo, res, System.nanoTime() - start);
+
+		return res;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -137,9 +144,15 @@ public class ASMGenerator extends AbstractClassGenerator implements Opcodes {
 		try {
 			return (Class<T>) classLoader.loadClass(classInfo.name(), false);
 		} catch (ClassNotFoundException e) {
-			classLoader.declareClass(classInfo.name(), genByteCode(classInfo));
+			byte[] byteCode = genByteCode(classInfo);
 
-			return (Class<T>) classLoader.loadClass(classInfo.name(), false);
+			GenerationObserver observer = observer();
+			long start = observer == null ? 0 : System.nanoTime();
+			classLoader.declareClass(classInfo.name(), byteCode);
+			Class<T> res = (Class<T>) classLoader.loadClass(classInfo.name(), false);
+			if (observer != null) observer.classDefined(classInfo, res, System.nanoTime() - start);
+
+			return res;
 		}
 	}
 
@@ -363,6 +376,58 @@ public class ASMGenerator extends AbstractClassGenerator implements Opcodes {
 		}
 	}
 
+	@Override
+	public void visitInvokeDynamic(IInvokeDynamic<?> invoke) {
+		StringBuilder desc = new StringBuilder("(");
+		for (ILocal<?> arg : invoke.args()) {
+			desc.append(arg.type().realName());
+		}
+		desc.append(")").append(invoke.returnType().realName());
+
+		if (!invoke.args().isEmpty() && !(invoke.args().get(0) instanceof CodeBlock.StackElem)) {
+			for (ILocal<?> arg : invoke.args()) {
+				methodVisitor.visitVarInsn(
+						getLoadType(arg.type()),
+						localIndex.get(arg.name())
+				);
+			}
+		}
+
+		Object[] bsmArgs = new Object[invoke.bootstrapArgs().size()];
+		for (int i = 0; i < bsmArgs.length; i++) {
+			Object arg = invoke.bootstrapArgs().get(i);
+			bsmArgs[i] = arg instanceof IClass<?> c ? Type.getType(c.realName()) : arg;
+		}
+
+		IMethod<?, ?> bootstrap = invoke.bootstrap();
+		methodVisitor.visitInvokeDynamicInsn(
+				invoke.name(),
+				desc.toString(),
+				new Handle(
+						Opcodes.H_INVOKESTATIC,
+						bootstrap.owner().internalName(),
+						bootstrap.name(),
+						bootstrap.typeDescription(),
+						Modifier.isInterface(bootstrap.owner().modifiers())
+				),
+				bsmArgs
+		);
+
+		if (invoke.returnTo() == null) {
+			if (invoke.returnType() != ClassInfo.VOID_TYPE) {
+				methodVisitor.visitInsn(invoke.returnType() == LONG_TYPE || invoke.returnType() == DOUBLE_TYPE ? Opcodes.POP2 : Opcodes.POP);
+			}
+		} else {
+			castAssign(invoke.returnType(), invoke.returnTo().type());
+
+			if (invoke.returnTo() instanceof CodeBlock.StackElem) return;
+			methodVisitor.visitVarInsn(
+					getStoreType(invoke.returnTo().type()),
+					localIndex.get(invoke.returnTo().name())
+			);
+		}
+	}
+
 	@Override
 	public void visitGetField(IGetField<?, ?> getField) {
 		if (!Modifier.isStatic(getField.source().modifiers())) {
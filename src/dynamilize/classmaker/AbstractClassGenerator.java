@@ -10,6 +10,8 @@ import dynamilize.classmaker.code.IMethod;
 import java.util.Map;
 
 public abstract class AbstractClassGenerator implements ElementVisitor {
+	private static final ThreadLocal<GenerationObserver> OBSERVER = new ThreadLocal<>();
+
 	protected IClass<?> currGenerating;
 	protected IField<?> currField;
 	protected IMethod<?, ?> currMethod;
@@ -49,6 +51,25 @@ public abstract class AbstractClassGenerator implements ElementVisitor {
 		localMap.put(local.name(), local);
 	}
 
+	/**
+	 * Set the {@linkplain GenerationObserver observer} of the classes generated on current thread.
+	 *
+	 * @param observer The observer, or null to remove the observer
+	 * @return The observer set before, it should be restored after the observed generation
+	 */
+	public static GenerationObserver observe(GenerationObserver observer) {
+		GenerationObserver last = OBSERVER.get();
+		if (observer == null) OBSERVER.remove();
+		else OBSERVER.set(observer);
+
+		return last;
+	}
+
+	/** Get the {@linkplain GenerationObserver observer} of the classes generated on current thread, or null if there is no observer. */
+	public static GenerationObserver observer() {
+		return OBSERVER.get();
+	}
+
 	public abstract byte[] genByteCode(ClassInfo<?> classInfo);
 
 	protected abstract <T> Class<T> generateClass(ClassInfo<T> classInfo) throws ClassNotFoundException;
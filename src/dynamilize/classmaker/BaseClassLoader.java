@@ -4,9 +4,10 @@ import dynamilize.IllegalHandleException;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class BaseClassLoader extends ClassLoader implements ByteClassLoader {
-	protected final Map<String, byte[]> bytecodes = new HashMap<>();
+	protected final Map<String, byte[]> bytecodes = new ConcurrentHashMap<>();
 	protected final Map<String, Class<?>> classMap = new HashMap<>();
 
 	public BaseClassLoader(ClassLoader parent) {
@@ -15,7 +16,7 @@ public class BaseClassLoader extends ClassLoader implements ByteClassLoader {
 
 	@Override
 	public void declareClass(String name, byte[] byteCode) {
-		if (bytecodes.put(name, byteCode) != null)
+		if (bytecodes.putIfAbsent(name, byteCode) != null)
 			throw new IllegalHandleException("cannot declare class with same name twice");
 	}
 
@@ -33,7 +34,13 @@ public class BaseClassLoader extends ClassLoader implements ByteClassLoader {
 				byte[] byteCode = bytecodes.get(n);
 				if (byteCode == null) return null;
 
-				return defineClass(n, byteCode, 0, byteCode.length);
+				try {
+					return defineClass(n, byteCode, 0, byteCode.length);
+				} catch (RuntimeException | LinkageError ex) {
+					// the invalid bytecode is dropped, so that a valid class can be declared with the name again
+					bytecodes.remove(n, byteCode);
+					throw ex;
+				}
 			});
 
 			if (result == null)
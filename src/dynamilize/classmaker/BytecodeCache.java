@@ -0,0 +1,221 @@
+package dynamilize.classmaker;
+
+import org.objectweb.asm.ClassReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * A persistent cache of the bytecode of generated classes in a directory, it allows the generated classes to be
+ * defined directly from the disk in the next run, without building the type identifiers and writing the bytecode again.
+ * <p>The cache is a {@link ByteClassLoader} wrapping the loader that actually defines the classes, the generator should
+ * declare its classes to this cache, so the bytecode can be recorded while a class is being {@linkplain BytecodeCache#get(String, Supplier) generated}.
+ * <p>A class is stored by a {@linkplain BytecodeCache#key(Collection, String...) key} hashed from the bytecode of the
+ * classes it depends on, so the cached class is invalidated automatically when any of the classes changes. A cache that
+ * can not be read or written is treated as missing, the class will be generated as usual.
+ *
+ * @author EBwilson
+ */
+public class BytecodeCache implements ByteClassLoader {
+	/**
+	 * The version of the format of the generated bytecode, it is hashed into every key. Increase it when the generated
+	 * classes change in a way that is not visible from the bytecode of the hashed classes.
+	 */
+	public static final int FORMAT_VERSION = 1;
+
+	private static final byte[] UNAVAILABLE = new byte[0];
+	private static final ClassValue<byte[]> DIGESTS = new ClassValue<>() {
+		@Override
+		protected byte[] computeValue(Class<?> type) {
+			if (type.isHidden() || type.isArray() || type.isPrimitive()) return UNAVAILABLE;
+
+			String file = type.getName().substring(type.getName().lastIndexOf('.') + 1) + ".class";
+			try (InputStream in = type.getResourceAsStream(file)) {
+				return in == null ? UNAVAILABLE : digest().digest(in.readAllBytes());
+			} catch (IOException e) {
+				return UNAVAILABLE;
+			}
+		}
+	};
+
+	protected final Path directory;
+	protected final ByteClassLoader loader;
+
+	private final ThreadLocal<Map<String, byte[]>> recording = new ThreadLocal<>();
+
+	/**
+	 * @param directory The directory the bytecode is stored in, it will be created if it does not exist
+	 * @param loader    The loader that defines the classes
+	 */
+	public BytecodeCache(Path directory, ByteClassLoader loader) {
+		this.directory = directory;
+		this.loader = loader;
+	}
+
+	/**
+	 * Compute the key of a generated class from the classes it depends on, the bytecode of the classes and all of their
+	 * super classes and interfaces is hashed, along with the given properties and the {@link BytecodeCache#FORMAT_VERSION}.
+	 *
+	 * @param classes    The classes that the generated class depends on
+	 * @param properties Any other properties that the generated class depends on
+	 * @return The key, or null if the bytecode of any of the classes is unavailable, the generated class should not be cached in this case
+	 */
+	public String key(Collection<Class<?>> classes, String... properties) {
+		LinkedHashSet<Class<?>> all = new LinkedHashSet<>();
+		ArrayDeque<Class<?>> queue = new ArrayDeque<>(classes);
+		while (!queue.isEmpty()) {
+			Class<?> c = queue.poll();
+			if (!all.add(c)) continue;
+
+			if (c.getSuperclass() != null) queue.add(c.getSuperclass());
+			queue.addAll(List.of(c.getInterfaces()));
+		}
+
+		MessageDigest digest = digest();
+		digest.update(Integer.toString(FORMAT_VERSION).getBytes(StandardCharsets.UTF_8));
+		for (Class<?> c : all) {
+			byte[] hash = DIGESTS.get(c);
+			if (hash == UNAVAILABLE) return null;
+
+			digest.update(c.getName().getBytes(StandardCharsets.UTF_8));
+			digest.update(hash);
+		}
+		for (String property : properties) {
+			digest.update((byte) 0);
+			digest.update(property.getBytes(StandardCharsets.UTF_8));
+		}
+
+		StringBuilder builder = new StringBuilder();
+		for (byte b : digest.digest()) {
+			builder.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+		}
+
+		return builder.toString();
+	}
+
+	/**
+	 * Get the class stored with the given key, if the class is not cached, it will be generated by the generator,
+	 * and the bytecode declared to this cache during the generation is stored.
+	 *
+	 * @param key       The key of the class, see {@link BytecodeCache#key(Collection, String...)}
+	 * @param generator The function that generates the class if it is not cached
+	 * @return The class
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> Class<? extends T> get(String key, Supplier<Class<? extends T>> generator) {
+		Class<? extends T> res = (Class<? extends T>) load(key);
+		if (res != null) return res;
+
+		Map<String, byte[]> last = recording.get();
+		HashMap<String, byte[]> declared = new HashMap<>();
+		recording.set(declared);
+		try {
+			res = generator.get();
+		} finally {
+			recording.set(last);
+		}
+
+		// the name of a hidden class is appended with a suffix
+		String name = res.getName();
+		int index = name.indexOf('/');
+		byte[] byteCode = declared.get(index < 0 ? name : name.substring(0, index));
+		if (byteCode != null) store(key, byteCode);
+
+		return res;
+	}
+
+	/** Clear all of the classes stored in the directory. */
+	public void clear() {
+		if (!Files.isDirectory(directory)) return;
+
+		try (var files = Files.list(directory)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				if (file.getFileName().toString().endsWith(".class")) Files.deleteIfExists(file);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Load the class stored with the given key. A stored file that is corrupt or cannot be defined is deleted, so
+	 * the class will be generated and stored again.
+	 *
+	 * @return The class, or null if the class is not stored or can not be loaded
+	 */
+	public Class<?> load(String key) {
+		Path file = directory.resolve(key + ".class");
+		if (!Files.isRegularFile(file)) return null;
+
+		try {
+			byte[] byteCode = Files.readAllBytes(file);
+			String name = new ClassReader(byteCode).getClassName().replace('/', '.');
+
+			try {
+				return loader.loadClass(name, false);
+			} catch (ClassNotFoundException e) {
+				loader.declareClass(name, byteCode);
+				return loader.loadClass(name, false);
+			}
+		} catch (IOException e) {
+			return null;
+		} catch (ClassNotFoundException | RuntimeException | LinkageError e) {
+			try {
+				Files.deleteIfExists(file);
+			} catch (IOException ignored) {
+			}
+			return null;
+		}
+	}
+
+	/** Store the bytecode of a class with the given key, the failures are ignored. */
+	public void store(String key, byte[] byteCode) {
+		Path temp = null;
+		try {
+			Files.createDirectories(directory);
+			temp = Files.createTempFile(directory, key, ".tmp");
+			Files.write(temp, byteCode);
+			Files.move(temp, directory.resolve(key + ".class"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			try {
+				if (temp != null) Files.deleteIfExists(temp);
+			} catch (IOException ignored) {
+			}
+		}
+	}
+
+	@Override
+	public void declareClass(String name, byte[] byteCode) {
+		Map<String, byte[]> declared = recording.get();
+		if (declared != null) declared.put(name, byteCode);
+
+		loader.declareClass(name, byteCode);
+	}
+
+	@Override
+	public Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+		return loader.loadClass(name, resolve);
+	}
+
+	private static MessageDigest digest() {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -15,6 +15,7 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -23,6 +24,8 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 /**
  * Type identification, used to mark/generate a class object, usually has the following two types:
@@ -108,10 +111,14 @@ import java.util.Objects;
  */
 @SuppressWarnings("rawtypes")
 public class ClassInfo<T> extends AnnotatedMember implements IClass<T> {
+	/** @deprecated The type identifiers can be built on multiple threads, this shared state is no longer used. */
+	@Deprecated
 	public static final LinkedList<IClass<?>> QUEUE = new LinkedList<>();
+	/** @deprecated The type identifiers can be built on multiple threads, this shared state is no longer used. */
+	@Deprecated
 	public static final HashSet<IClass<?>> EXCLUDE = new HashSet<>();
 
-	private static final Map<Class<?>, ClassInfo<?>> classMap = new HashMap<>();
+	private static final Map<Class<?>, ClassInfo<?>> classMap = new ConcurrentHashMap<>();
 
 	private static final String OBJECT_TYPE_MARK = "Ljava/lang/Object;";
 	private static final String INIT = "<init>";
@@ -255,9 +262,11 @@ public class ClassInfo<T> extends AnnotatedMember implements IClass<T> {
 			);
 			res.clazz = clazz;
 
-			classMap.put(clazz, res);
-
-			if (clazz.isAnnotation())
+			ClassInfo<T> existed = (ClassInfo<T>) classMap.putIfAbsent(clazz, res);
+			if (existed != null) {
+				// another thread has marked this type, wait for its annotations
+				res = existed;
+			} else if (clazz.isAnnotation())
 				res.asAnnotation(null);
 
 			res.initAnnotations();
@@ -266,6 +275,17 @@ public class ClassInfo<T> extends AnnotatedMember implements IClass<T> {
 		return res;
 	}
 
+	private static <V> V cached(Map<String, V> map, String key, Function<String, V> factory) {
+		V res = map.get(key);
+		if (res == null) {
+			res = factory.apply(key);
+			V existed = map.putIfAbsent(key, res);
+			if (existed != null) res = existed;
+		}
+
+		return res;
+	}
+
 	/**
 	 * This method should not be called externally. It is only used to pass a Java primitive type class object
 	 * to obtain its type identifier. If the passed type is not a primitive Java type or {@link Object}, an exception
@@ -288,13 +308,13 @@ public class ClassInfo<T> extends AnnotatedMember implements IClass<T> {
 
 			realName = OBJECT_TYPE_MARK;
 
-			fieldMap = new HashMap<>();
-			methodMap = new HashMap<>();
+			fieldMap = new ConcurrentHashMap<>();
+			methodMap = new ConcurrentHashMap<>();
 
 			isPrimitive = false;
 		} else {
-			fieldMap = new HashMap<>();
-			methodMap = new HashMap<>();
+			fieldMap = new ConcurrentHashMap<>();
+			methodMap = new ConcurrentHashMap<>();
 
 			setModifiers(Modifier.PUBLIC | Modifier.FINAL);
 
@@ -343,8 +363,8 @@ public class ClassInfo<T> extends AnnotatedMember implements IClass<T> {
 		this.interfaces = Arrays.asList(interfaces);
 
 		elements = new ArrayList<>();
-		fieldMap = new HashMap<>();
-		methodMap = new HashMap<>();
+		fieldMap = new ConcurrentHashMap<>();
+		methodMap = new ConcurrentHashMap<>();
 
 		realName = "L" + name.replace(".", "/") + ";";
 
@@ -357,8 +377,8 @@ public class ClassInfo<T> extends AnnotatedMember implements IClass<T> {
 
 		superClass = OBJECT_TYPE;
 		elements = new ArrayList<>();
-		methodMap = new HashMap<>();
-		fieldMap = new HashMap<>();
+		methodMap = new ConcurrentHashMap<>();
+		fieldMap = new ConcurrentHashMap<>();
 
 		realName = "[" + comp.realName;
 
@@ -457,7 +477,7 @@ public class ClassInfo<T> extends AnnotatedMember implements IClass<T> {
 		}
 	}
 
-	public void initAnnotations() {
+	public synchronized void initAnnotations() {
 		if (!initialized) {
 			for (Annotation annotation : clazz.getAnnotations()) {
 				addAnnotation(new AnnotationDef<>(annotation));
@@ -504,7 +524,7 @@ public class ClassInfo<T> extends AnnotatedMember implements IClass<T> {
 	@SuppressWarnings("unchecked")
 	//utilMethods
 	public <R> MethodInfo<T, R> getMethod(IClass<R> returnType, String name, IClass<?>... args) {
-		return (MethodInfo<T, R>) methodMap.computeIfAbsent(pack(name, args), e -> {
+		return (MethodInfo<T, R>) cached(methodMap, pack(name, args), e -> {
 			if (!isExistedClass())
 				throw new IllegalHandleException("this class info is not a existed type mark, you have to declare method then get it");
 
@@ -550,7 +570,7 @@ public class ClassInfo<T> extends AnnotatedMember implements IClass<T> {
 	@Override
 	@SuppressWarnings("unchecked")
 	public MethodInfo<T, Void> getConstructor(IClass<?>... args) {
-		return (MethodInfo<T, Void>) methodMap.computeIfAbsent(pack(INIT, args), e -> {
+		return (MethodInfo<T, Void>) cached(methodMap, pack(INIT, args), e -> {
 			if (!isExistedClass())
 				throw new IllegalHandleException("this class info is not a existed type mark, you have to declare method then get it");
 
@@ -595,7 +615,7 @@ public class ClassInfo<T> extends AnnotatedMember implements IClass<T> {
 	@Override
 	@SuppressWarnings("unchecked")
 	public <TY> FieldInfo<TY> getField(IClass<TY> type, String name) {
-		return (FieldInfo<TY>) fieldMap.computeIfAbsent(name, e -> {
+		return (FieldInfo<TY>) cached(fieldMap, name, e -> {
 			if (!isExistedClass())
 				throw new IllegalHandleException("this class info is not a existed type mark, you have to declare field then get it");
 
@@ -626,19 +646,19 @@ public class ClassInfo<T> extends AnnotatedMember implements IClass<T> {
 				ty = ty.superClass();
 			}
 		} else {
-			QUEUE.clear();
-			EXCLUDE.clear();
+			ArrayDeque<IClass<?>> queue = new ArrayDeque<>();
+			HashSet<IClass<?>> exclude = new HashSet<>();
 
 			while (ty != null) {
 				for (IClass<?> iClass : ty.interfaces()) {
-					if (EXCLUDE.add(iClass)) QUEUE.addFirst(iClass);
+					if (exclude.add(iClass)) queue.addFirst(iClass);
 				}
-				while (!QUEUE.isEmpty()) {
-					IClass<?> c = QUEUE.removeFirst();
+				while (!queue.isEmpty()) {
+					IClass<?> c = queue.removeFirst();
 					if (equals(c)) return true;
 
 					for (IClass<?> iClass : c.interfaces()) {
-						if (EXCLUDE.add(iClass)) QUEUE.addFirst(iClass);
+						if (exclude.add(iClass)) queue.addFirst(iClass);
 					}
 				}
 
@@ -14,6 +14,7 @@ import dynamilize.classmaker.code.IGetField;
 import dynamilize.classmaker.code.IGoto;
 import dynamilize.classmaker.code.IInstanceOf;
 import dynamilize.classmaker.code.IInvoke;
+import dynamilize.classmaker.code.IInvokeDynamic;
 import dynamilize.classmaker.code.ILoadConstant;
 import dynamilize.classmaker.code.ILocal;
 import dynamilize.classmaker.code.ILocalAssign;
@@ -32,10 +33,10 @@ import dynamilize.classmaker.code.Label;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static dynamilize.classmaker.ClassInfo.BOOLEAN_TYPE;
 import static dynamilize.classmaker.ClassInfo.BYTE_TYPE;
@@ -55,7 +56,7 @@ import static dynamilize.classmaker.ClassInfo.asType;
  */
 public class CodeBlock<R> implements ICodeBlock<R> {
 	public static class StackElem<T> implements ILocal<T> {
-		private static final HashMap<IClass<?>, StackElem<?>> caching = new HashMap<>();
+		private static final ConcurrentHashMap<IClass<?>, StackElem<?>> caching = new ConcurrentHashMap<>();
 
 		private final IClass<T> type;
 
@@ -65,6 +66,9 @@ public class CodeBlock<R> implements ICodeBlock<R> {
 
 		@SuppressWarnings("unchecked")
 		public static <T> StackElem<T> get(IClass<T> type) {
+			// the types being generated are not cached, or the static cache would keep the generated classes from unloading
+			if (!type.isExistedClass()) return new StackElem<>(type);
+
 			return (StackElem<T>) caching.computeIfAbsent(type, StackElem::new);
 		}
 
@@ -302,6 +306,12 @@ public class CodeBlock<R> implements ICodeBlock<R> {
 		);
 	}
 
+	public final <S> void invokeDynamic(IMethod<?, ?> bootstrap, String name, IClass<S> returnType, ILocal<? super S> returnTo, Object[] bootstrapArgs, ILocal<?>... args) {
+		codes().add(
+				new InvokeDynamic<>(bootstrap, name, returnType, returnTo, bootstrapArgs, args)
+		);
+	}
+
 	public final <T extends R> void returnValue(ILocal<T> local) {
 		codes().add(
 				new Return<>(local)
@@ -683,6 +693,59 @@ public class CodeBlock<R> implements ICodeBlock<R> {
 		}
 	}
 
+	protected static class InvokeDynamic<R> implements IInvokeDynamic<R> {
+		final IMethod<?, ?> bootstrap;
+		final String name;
+		final IClass<R> returnType;
+		final ILocal<? super R> returnTo;
+		final List<Object> bootstrapArgs;
+		final List<ILocal<?>> args;
+
+		public InvokeDynamic(IMethod<?, ?> bootstrap, String name, IClass<R> returnType, ILocal<? super R> returnTo, Object[] bootstrapArgs, ILocal<?>... args) {
+			checkStack(this, args);
+
+			if (!Modifier.isStatic(bootstrap.modifiers()))
+				throw new IllegalHandleException("bootstrap method " + bootstrap.name() + " must be static");
+
+			this.bootstrap = bootstrap;
+			this.name = name;
+			this.returnType = returnType;
+			this.returnTo = returnType != VOID_TYPE ? returnTo : null;
+			this.bootstrapArgs = Arrays.asList(bootstrapArgs);
+			this.args = Arrays.asList(args);
+		}
+
+		@Override
+		public IMethod<?, ?> bootstrap() {
+			return bootstrap;
+		}
+
+		@Override
+		public String name() {
+			return name;
+		}
+
+		@Override
+		public IClass<R> returnType() {
+			return returnType;
+		}
+
+		@Override
+		public List<ILocal<?>> args() {
+			return args;
+		}
+
+		@Override
+		public List<Object> bootstrapArgs() {
+			return bootstrapArgs;
+		}
+
+		@Override
+		public ILocal<? super R> returnTo() {
+			return returnTo;
+		}
+	}
+
 	protected static class Compare<T> implements ICompare<T> {
 		final ILocal<T> left;
 		final ILocal<T> right;
@@ -767,17 +830,17 @@ public class CodeBlock<R> implements ICodeBlock<R> {
 
 		@Override
 		public ILocal<?> target() {
-			return null;
+			return target;
 		}
 
 		@Override
 		public IClass<?> type() {
-			return null;
+			return type;
 		}
 
 		@Override
 		public ILocal<Boolean> result() {
-			return null;
+			return result;
 		}
 	}
 
@@ -13,6 +13,7 @@ import dynamilize.classmaker.code.IGetField;
 import dynamilize.classmaker.code.IGoto;
 import dynamilize.classmaker.code.IInstanceOf;
 import dynamilize.classmaker.code.IInvoke;
+import dynamilize.classmaker.code.IInvokeDynamic;
 import dynamilize.classmaker.code.ILoadConstant;
 import dynamilize.classmaker.code.ILocal;
 import dynamilize.classmaker.code.ILocalAssign;
@@ -49,6 +50,9 @@ public class DefaultReadVisitor implements ElementVisitor {
 	@Override
 	public void visitInvoke(IInvoke<?> invoke) {}
 
+	@Override
+	public void visitInvokeDynamic(IInvokeDynamic<?> invoke) {}
+
 	@Override
 	public void visitGetField(IGetField<?, ?> getField) {}
 
@@ -12,6 +12,7 @@ import dynamilize.classmaker.code.IGetField;
 import dynamilize.classmaker.code.IGoto;
 import dynamilize.classmaker.code.IInstanceOf;
 import dynamilize.classmaker.code.IInvoke;
+import dynamilize.classmaker.code.IInvokeDynamic;
 import dynamilize.classmaker.code.ILoadConstant;
 import dynamilize.classmaker.code.ILocal;
 import dynamilize.classmaker.code.ILocalAssign;
@@ -37,6 +38,8 @@ public interface ElementVisitor {
 
 	void visitInvoke(IInvoke<?> invoke);
 
+	void visitInvokeDynamic(IInvokeDynamic<?> invoke);
+
 	void visitGetField(IGetField<?, ?> getField);
 
 	void visitPutField(IPutField<?, ?> putField);
@@ -0,0 +1,38 @@
+package dynamilize.classmaker;
+
+import dynamilize.classmaker.code.IClass;
+
+/**
+ * The observer of the stages of class generation, it is notified by the generators and the class factories on the
+ * thread it is {@linkplain AbstractClassGenerator#observe(GenerationObserver) set to}, so the cost of generating a class can
+ * be measured without changing the way the generator is called.
+ *
+ * @author EBwilson
+ */
+public interface GenerationObserver {
+	/**
+	 * Called after the type identifier of a class is built.
+	 *
+	 * @param clazz The type identifier
+	 * @param nanos The time spent building it
+	 */
+	default void classInfoBuilt(IClass<?> clazz, long nanos) {}
+
+	/**
+	 * Called after the bytecode of a class is generated.
+	 *
+	 * @param clazz    The type identifier the bytecode is generated from
+	 * @param byteCode The generated bytecode
+	 * @param nanos    The time spent generating it
+	 */
+	default void byteCodeGenerated(IClass<?> clazz, byte[] byteCode, long nanos) {}
+
+	/**
+	 * Called after a generated class is defined and loaded.
+	 *
+	 * @param clazz The type identifier of the class
+	 * @param type  The loaded class
+	 * @param nanos The time spent defining and loading it, the bytecode generation is not included
+	 */
+	default void classDefined(IClass<?> clazz, Class<?> type, long nanos) {}
+}
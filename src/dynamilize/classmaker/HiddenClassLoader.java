@@ -0,0 +1,163 @@
+package dynamilize.classmaker;
+
+import dynamilize.IllegalHandleException;
+import org.objectweb.asm.ClassReader;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link ByteClassLoader} that defines the generated classes as hidden classes through
+ * {@link MethodHandles.Lookup#defineHiddenClass(byte[], boolean, MethodHandles.Lookup.ClassOption...)}.
+ * <p>The class is defined as soon as it is declared, through a lookup on a host class in the package of the generated
+ * class, the hidden class is defined in the loader of the host and joins its nest if {@code nestmate} is enabled. A hidden
+ * class is not registered in any class loader, so defining it never goes through the parent delegation, and it can be
+ * unloaded as soon as it is no longer referenced, this loader only keeps weak references to the defined classes, the
+ * references of the unloaded classes are purged when the next class is declared.
+ * <p>The host of a package is the lookup {@linkplain HiddenClassLoader#addHost(MethodHandles.Lookup) registered} for it,
+ * otherwise the super class or the interfaces of the generated class in the same package are used if a lookup with full
+ * privilege access can be obtained on them. If no host is found (e.g. the generated class is renamed from the package
+ * {@code java.*}, or the base class is in another module), the class is declared to the fallback loader instead.
+ * <p>Note that a hidden class cannot be found by name, a generated class cannot extend a hidden class, and the caches
+ * in {@link dynamilize.DynamicMaker} keep strong references to the generated classes until they are cleared.
+ *
+ * @author EBwilson
+ */
+public class HiddenClassLoader implements ByteClassLoader {
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	protected final ClassLoader parent;
+	protected final ByteClassLoader fallback;
+	protected final boolean nestmate;
+
+	protected final Map<String, MethodHandles.Lookup> hosts = new ConcurrentHashMap<>();
+	protected final Map<String, ClassRef> classMap = new ConcurrentHashMap<>();
+	private final ReferenceQueue<Class<?>> unloaded = new ReferenceQueue<>();
+
+	public HiddenClassLoader(ClassLoader parent) {
+		this(parent, new BaseClassLoader(parent), true);
+	}
+
+	/**
+	 * @param parent   The class loader used to resolve the host classes
+	 * @param fallback The loader that the classes without a host are declared to, the classes not declared here are also loaded from it
+	 * @param nestmate Whether the hidden classes join the nest of their hosts
+	 */
+	public HiddenClassLoader(ClassLoader parent, ByteClassLoader fallback, boolean nestmate) {
+		this.parent = parent;
+		this.fallback = fallback;
+		this.nestmate = nestmate;
+	}
+
+	/**
+	 * Register the lookup used to define the hidden classes in the package of its lookup class, it is usually the
+	 * {@link MethodHandles#lookup()} of a class in the package of the base classes.
+	 *
+	 * @param lookup The lookup, it must have full privilege access
+	 * @throws IllegalHandleException if the lookup does not have full privilege access
+	 */
+	public void addHost(MethodHandles.Lookup lookup) {
+		if (!lookup.hasFullPrivilegeAccess())
+			throw new IllegalHandleException("the host lookup of package " + lookup.lookupClass().getPackageName() + " has no full privilege access");
+
+		hosts.put(lookup.lookupClass().getPackageName(), lookup);
+	}
+
+	@Override
+	public void declareClass(String name, byte[] byteCode) {
+		purge();
+
+		// reserve the name, so the class cannot be declared twice by concurrent threads
+		ClassRef reservation = new ClassRef(name, null, null);
+		classMap.compute(name, (n, old) -> {
+			if (old != null && (old.reserved || old.get() != null))
+				throw new IllegalHandleException("cannot declare class with same name twice");
+
+			return reservation;
+		});
+
+		try {
+			MethodHandles.Lookup host = host(name, byteCode);
+			if (host == null) {
+				fallback.declareClass(name, byteCode);
+				return;
+			}
+
+			MethodHandles.Lookup res = nestmate
+					? host.defineHiddenClass(byteCode, false, MethodHandles.Lookup.ClassOption.NESTMATE)
+					: host.defineHiddenClass(byteCode, false);
+
+			classMap.replace(name, reservation, new ClassRef(name, res.lookupClass(), unloaded));
+		} catch (IllegalAccessException e) {
+			throw new IllegalHandleException(e);
+		} finally {
+			classMap.remove(name, reservation);
+		}
+	}
+
+	/** Remove the references of the unloaded classes. */
+	protected void purge() {
+		for (Reference<? extends Class<?>> ref; (ref = unloaded.poll()) != null; ) {
+			ClassRef classRef = (ClassRef) ref;
+			classMap.remove(classRef.name, classRef);
+		}
+	}
+
+	@Override
+	public Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+		ClassRef ref = classMap.get(name);
+		Class<?> res = ref == null ? null : ref.get();
+
+		return res != null ? res : fallback.loadClass(name, resolve);
+	}
+
+	protected MethodHandles.Lookup host(String name, byte[] byteCode) {
+		String pkg = packageOf(name);
+		MethodHandles.Lookup res = hosts.get(pkg);
+		if (res != null) return res;
+
+		ClassReader reader = new ClassReader(byteCode);
+		ArrayList<String> candidates = new ArrayList<>();
+		if (reader.getSuperName() != null) candidates.add(reader.getSuperName());
+		candidates.addAll(List.of(reader.getInterfaces()));
+
+		for (String candidate : candidates) {
+			String className = candidate.replace('/', '.');
+			if (!packageOf(className).equals(pkg)) continue;
+
+			try {
+				MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(Class.forName(className, false, parent), LOOKUP);
+				if (!lookup.hasFullPrivilegeAccess()) continue;
+
+				hosts.putIfAbsent(pkg, lookup);
+				return lookup;
+			} catch (ClassNotFoundException | IllegalAccessException ignored) {
+			}
+		}
+
+		return null;
+	}
+
+	private static String packageOf(String className) {
+		int index = className.lastIndexOf('.');
+		return index < 0 ? "" : className.substring(0, index);
+	}
+
+	/** The weak reference of a defined hidden class, or the reservation of a name being declared if the referent is null. */
+	protected static class ClassRef extends WeakReference<Class<?>> {
+		protected final String name;
+		protected final boolean reserved;
+
+		protected ClassRef(String name, Class<?> clazz, ReferenceQueue<Class<?>> queue) {
+			super(clazz, queue);
+			this.name = name;
+			this.reserved = clazz == null;
+		}
+	}
+}
@@ -7,6 +7,7 @@ public enum ElementKind {
 	BLOCK,
 	LOCAL,
 	INVOKE,
+	INVOKEDYNAMIC,
 	GOTO,
 	LOCALASSIGN,
 	FIELDGET,
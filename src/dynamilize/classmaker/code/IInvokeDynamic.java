@@ -0,0 +1,32 @@
+package dynamilize.classmaker.code;
+
+import dynamilize.classmaker.ElementVisitor;
+
+import java.util.List;
+
+public interface IInvokeDynamic<R> extends Element {
+	@Override
+	default void accept(ElementVisitor visitor) {
+		visitor.visitInvokeDynamic(this);
+	}
+
+	@Override
+	default ElementKind kind() {
+		return ElementKind.INVOKEDYNAMIC;
+	}
+
+	/** The static bootstrap method that links this call site. */
+	IMethod<?, ?> bootstrap();
+
+	/** The name passed to the bootstrap method. */
+	String name();
+
+	IClass<R> returnType();
+
+	List<ILocal<?>> args();
+
+	/** The constant arguments passed to the bootstrap method, allowed types: String, primitive wrappers, {@link IClass}. */
+	List<Object> bootstrapArgs();
+
+	ILocal<? super R> returnTo();
+}
@@ -0,0 +1,36 @@
+package dynamilize.runtimeannos;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Repeatable;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declare a dynamic type to be generated at build time by {@link dynamilize.AotGenerator}, the annotation can be put
+ * on any class compiled in the scanned class directories.
+ * <p>The pre-generated classes are packaged with the declaring classes, {@link dynamilize.DynamicMaker} uses a
+ * pre-generated class instead of generating one when the base class, the interfaces, the aspects, the dispatch mode and
+ * the variable layout are all matched.
+ *
+ * @author EBwilson
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+@Repeatable(Pregenerate.List.class)
+public @interface Pregenerate {
+	/** The base class of the dynamic type. */
+	Class<?> base();
+
+	/** The interfaces implemented by the dynamic type. */
+	Class<?>[] interfaces() default {};
+
+	/** The {@linkplain AspectInterface aspect interfaces} of the dynamic type, an empty array means the full delegation (null aspects). */
+	Class<?>[] aspects() default {};
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.TYPE)
+	@interface List {
+		Pregenerate[] value();
+	}
+}